@@ -9,7 +9,24 @@ public class Constants {
     public static final String WEATHER_KEY_TEMP_MAX = "weather_temp_max";
     public static final String WEATHER_KEY_TEMP_MIN = "weather_temp_min";
     public static final String WEATHER_KEY_ID = "weather_id";
+    public static final String WEATHER_KEY_VERSION = "weather_version";
+    public static final String WEATHER_KEY_METRIC = "weather_metric";
 
     // Watch Face Configuration Key Constants
     public static final String WATCH_FACE_SETTINGS_PATH = "/watch_face_config";
+    // WatchFaceConfigCodec encoded WatchFaceConfig
+    public static final String CONFIG_KEY_PAYLOAD = "config_payload";
+
+    // Watch Face render metrics, exported from debug builds of the watch
+    public static final String WATCH_FACE_METRICS_PATH = "/watch_face_metrics";
+    public static final String METRICS_KEY_TIMESTAMP = "metrics_timestamp";
+    public static final String METRICS_KEY_PERIOD_MS = "metrics_period_ms";
+    public static final String METRICS_KEY_FRAME_HISTOGRAM = "metrics_frame_histogram";
+    public static final String METRICS_KEY_FRAME_COUNT = "metrics_frame_count";
+    public static final String METRICS_KEY_FRAME_AVG_US = "metrics_frame_avg_us";
+    public static final String METRICS_KEY_FRAME_MAX_US = "metrics_frame_max_us";
+    public static final String METRICS_KEY_TICK_JITTER_AVG_MS = "metrics_tick_jitter_avg_ms";
+    public static final String METRICS_KEY_TICK_JITTER_MAX_MS = "metrics_tick_jitter_max_ms";
+    public static final String METRICS_KEY_INVALIDATIONS = "metrics_invalidations";
+    public static final String METRICS_KEY_CONNECTED_MS = "metrics_connected_ms";
 }
@@ -0,0 +1,38 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * Small direct mapped cache of strings keyed by julian day, for date labels that are formatted
+ * again and again for the same few days. Safe to use from several threads.
+ */
+public final class DayStringCache {
+
+    private final int[] mDays;
+    private final String[] mValues;
+
+    /**
+     * @param capacity rounded up to a power of two, days that far apart share a slot
+     */
+    public DayStringCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) * 2;
+        mDays = new int[size];
+        mValues = new String[size];
+    }
+
+    // The string cached for the day, or null
+    public synchronized String get(int julianDay) {
+        int slot = julianDay & (mDays.length - 1);
+        return mValues[slot] != null && mDays[slot] == julianDay ? mValues[slot] : null;
+    }
+
+    public synchronized void put(int julianDay, String value) {
+        int slot = julianDay & (mDays.length - 1);
+        mDays[slot] = julianDay;
+        mValues[slot] = value;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = null;
+        }
+    }
+}
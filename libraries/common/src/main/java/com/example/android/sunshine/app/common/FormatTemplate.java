@@ -0,0 +1,57 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * A two argument format string such as "%1$1.0f km/h %2$s", split once into the text around its
+ * arguments so it can be filled by appending to a builder instead of calling String.format.
+ */
+public final class FormatTemplate {
+
+    private final String mPrefix;
+    private final String mMiddle;
+    private final String mSuffix;
+
+    private FormatTemplate(String prefix, String middle, String suffix) {
+        mPrefix = prefix;
+        mMiddle = middle;
+        mSuffix = suffix;
+    }
+
+    /**
+     * @param firstSpec  the conversion the first argument must use, e.g. "%1$s"
+     * @param secondSpec the conversion the second argument must use
+     * @return the template, or null if the format does not have both arguments in that order with
+     * exactly those conversions, or has any other conversion; callers then fall back to String.format
+     */
+    public static FormatTemplate parse(String format, String firstSpec, String secondSpec) {
+        int first = format.indexOf(firstSpec);
+        int second = format.indexOf(secondSpec);
+        if (first < 0 || second < first + firstSpec.length()) {
+            return null;
+        }
+        String prefix = format.substring(0, first);
+        String middle = format.substring(first + firstSpec.length(), second);
+        String suffix = format.substring(second + secondSpec.length());
+        if (prefix.indexOf('%') >= 0 || middle.indexOf('%') >= 0 || suffix.indexOf('%') >= 0) {
+            // Escapes or further arguments, not worth handling here
+            return null;
+        }
+        return new FormatTemplate(prefix, middle, suffix);
+    }
+
+    public StringBuilder appendPrefix(StringBuilder builder) {
+        return builder.append(mPrefix);
+    }
+
+    public StringBuilder appendMiddle(StringBuilder builder) {
+        return builder.append(mMiddle);
+    }
+
+    public StringBuilder appendSuffix(StringBuilder builder) {
+        return builder.append(mSuffix);
+    }
+
+    // Fill in two string arguments
+    public StringBuilder append(StringBuilder builder, String first, String second) {
+        return builder.append(mPrefix).append(first).append(mMiddle).append(second).append(mSuffix);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * Difference between two lists whose rows are identified by strictly increasing keys, e.g. forecast
+ * rows sorted by date. Each row also carries a content hash, rows with the same key and hash are
+ * left alone.
+ * <p/>
+ * Both lists are walked once, so computing the diff is linear and cheap enough for a loader thread.
+ * The resulting ranges are dispatched in order with positions already adjusted for the earlier
+ * ones, which is what RecyclerView.Adapter#notifyItemRange* expects.
+ */
+public final class SortedKeyDiff {
+
+    public interface Callback {
+
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onChanged(int position, int count);
+    }
+
+    private static final int OP_INSERT = 1;
+    private static final int OP_REMOVE = 2;
+    private static final int OP_CHANGE = 3;
+
+    // Triples of (op, position, count)
+    private final int[] mOps;
+    private final int mOpCount;
+
+    private SortedKeyDiff(int[] ops, int opCount) {
+        this.mOps = ops;
+        this.mOpCount = opCount;
+    }
+
+    /**
+     * @return the diff, or null when the keys of either list are not strictly increasing and the
+     * caller has to treat everything as changed
+     */
+    public static SortedKeyDiff compute(long[] oldKeys, int[] oldHashes, int oldCount,
+                                        long[] newKeys, int[] newHashes, int newCount) {
+        if (!isStrictlyIncreasing(oldKeys, oldCount) || !isStrictlyIncreasing(newKeys, newCount)) {
+            return null;
+        }
+        Builder builder = new Builder(oldCount + newCount);
+        int i = 0;
+        int j = 0;
+        int position = 0;
+        while (i < oldCount && j < newCount) {
+            if (oldKeys[i] == newKeys[j]) {
+                if (oldHashes[i] != newHashes[j]) {
+                    builder.add(OP_CHANGE, position);
+                }
+                position++;
+                i++;
+                j++;
+            } else if (oldKeys[i] < newKeys[j]) {
+                builder.add(OP_REMOVE, position);
+                i++;
+            } else {
+                builder.add(OP_INSERT, position);
+                position++;
+                j++;
+            }
+        }
+        for (; i < oldCount; i++) {
+            builder.add(OP_REMOVE, position);
+        }
+        for (; j < newCount; j++) {
+            builder.add(OP_INSERT, position);
+            position++;
+        }
+        return new SortedKeyDiff(builder.mOps, builder.mCount);
+    }
+
+    private static boolean isStrictlyIncreasing(long[] keys, int count) {
+        for (int i = 1; i < count; i++) {
+            if (keys[i] <= keys[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return mOpCount == 0;
+    }
+
+    public void dispatch(Callback callback) {
+        for (int k = 0; k < mOpCount * 3; k += 3) {
+            switch (mOps[k]) {
+                case OP_INSERT:
+                    callback.onInserted(mOps[k + 1], mOps[k + 2]);
+                    break;
+                case OP_REMOVE:
+                    callback.onRemoved(mOps[k + 1], mOps[k + 2]);
+                    break;
+                default:
+                    callback.onChanged(mOps[k + 1], mOps[k + 2]);
+            }
+        }
+    }
+
+    // Merges single row operations into ranges as they are added
+    private static final class Builder {
+        final int[] mOps;
+        int mCount;
+
+        Builder(int maxOps) {
+            mOps = new int[maxOps * 3];
+        }
+
+        void add(int op, int position) {
+            if (mCount > 0) {
+                int last = (mCount - 1) * 3;
+                int lastOp = mOps[last];
+                int lastPosition = mOps[last + 1];
+                int lastCount = mOps[last + 2];
+                // Removals keep hitting the same position, inserts and changes move forward
+                if (op == lastOp && ((op == OP_REMOVE && position == lastPosition)
+                        || (op != OP_REMOVE && position == lastPosition + lastCount))) {
+                    mOps[last + 2]++;
+                    return;
+                }
+            }
+            int next = mCount * 3;
+            mOps[next] = op;
+            mOps[next + 1] = position;
+            mOps[next + 2] = 1;
+            mCount++;
+        }
+    }
+}
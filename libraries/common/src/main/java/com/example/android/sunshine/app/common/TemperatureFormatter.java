@@ -0,0 +1,61 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * Formats temperatures the way Sunshine shows them, e.g. "21°", shared by the phone and the watch.
+ * <p/>
+ * Temperatures are stored and sent in Celsius and converted here, so the watch can re-format for a
+ * unit change on its own. The append methods write into a caller supplied buffer and do not allocate.
+ */
+public final class TemperatureFormatter {
+
+    public static final char DEGREE_SIGN = '°';
+
+    private TemperatureFormatter() {
+    }
+
+    public static double toDisplayUnits(double celsius, boolean metric) {
+        return metric ? celsius : (celsius * 1.8) + 32;
+    }
+
+    // Round half away from zero, as String.format("%1.0f") does
+    static long round(double value) {
+        long rounded = (long) Math.floor(Math.abs(value) + 0.5);
+        return value < 0 ? -rounded : rounded;
+    }
+
+    // Append the temperature, for presentation we assume nobody cares about tenths of a degree
+    public static StringBuilder append(StringBuilder builder, double celsius, boolean metric) {
+        return builder.append(round(toDisplayUnits(celsius, metric))).append(DEGREE_SIGN);
+    }
+
+    /**
+     * Write the temperature into a char buffer.
+     *
+     * @return the number of chars written, the buffer needs room for at least 21 chars
+     */
+    public static int format(char[] buffer, int offset, double celsius, boolean metric) {
+        long value = round(toDisplayUnits(celsius, metric));
+        int position = offset;
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digitsStart = position;
+        do {
+            buffer[position++] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = digitsStart, j = position - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        buffer[position++] = DEGREE_SIGN;
+        return position - offset;
+    }
+
+    public static String format(double celsius, boolean metric) {
+        return append(new StringBuilder(5), celsius, metric).toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * Icon and art drawables of the OpenWeatherMap condition codes, looked up through
+ * {@link WeatherConditions}. The drawables live in this library so the phone and the watch share
+ * them and this mapping.
+ */
+public final class WeatherConditionResources {
+
+    // By WeatherConditions art
+    private static final int[] ICONS = {
+            R.drawable.ic_storm, R.drawable.ic_light_rain, R.drawable.ic_rain, R.drawable.ic_snow,
+            R.drawable.ic_fog, R.drawable.ic_clear, R.drawable.ic_light_clouds, R.drawable.ic_cloudy};
+    private static final int[] ARTS = {
+            R.drawable.art_storm, R.drawable.art_light_rain, R.drawable.art_rain, R.drawable.art_snow,
+            R.drawable.art_fog, R.drawable.art_clear, R.drawable.art_light_clouds, R.drawable.art_clouds};
+
+    private WeatherConditionResources() {
+    }
+
+    /**
+     * @return resource id of the condition's icon, -1 if there is none
+     */
+    public static int getIconResource(int weatherId) {
+        int art = WeatherConditions.getArt(weatherId);
+        return art == WeatherConditions.ART_NONE ? -1 : ICONS[art];
+    }
+
+    /**
+     * @return resource id of the condition's art, -1 if there is none
+     */
+    public static int getArtResource(int weatherId) {
+        int art = WeatherConditions.getArt(weatherId);
+        return art == WeatherConditions.ART_NONE ? -1 : ARTS[art];
+    }
+
+    // Resource id of one of the WeatherConditions ART_ constants
+    public static int getResourceOfArt(int art) {
+        return ARTS[art];
+    }
+}
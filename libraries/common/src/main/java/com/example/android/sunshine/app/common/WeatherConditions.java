@@ -0,0 +1,151 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * What Sunshine shows for each OpenWeatherMap condition code, precomputed into dense tables
+ * indexed by code - {@link #FIRST_CODE}, so the phone and the watch look a condition up with one
+ * array read instead of walking range checks.
+ * <p/>
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+public final class WeatherConditions {
+
+    public static final int FIRST_CODE = 200;
+    public static final int LAST_CODE = 962;
+
+    // Art of a condition, the icon and art drawables and the art pack images share these
+    public static final int ART_NONE = -1;
+    public static final int ART_STORM = 0;
+    public static final int ART_LIGHT_RAIN = 1;
+    public static final int ART_RAIN = 2;
+    public static final int ART_SNOW = 3;
+    public static final int ART_FOG = 4;
+    public static final int ART_CLEAR = 5;
+    public static final int ART_LIGHT_CLOUDS = 6;
+    public static final int ART_CLOUDS = 7;
+    public static final int ART_COUNT = 8;
+
+    // Names of the art in the art pack urls, by art
+    private static final String[] ART_NAMES = {
+            "storm", "light_rain", "rain", "snow", "fog", "clear", "light_clouds", "clouds"};
+
+    // Photos the Muzei source shows, the dust photo is only used for tornadoes
+    private static final String[] IMAGE_URLS = {
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg"};
+    private static final int IMAGE_DUST = 8;
+
+    /**
+     * Codes that have a description of their own, 200 and 300 stand for all of 2xx and 3xx. The
+     * mobile condition strings are kept in this order.
+     */
+    public static final int[] DESCRIPTION_CODES = {
+            200, 300,
+            500, 501, 502, 503, 504, 511, 520, 531,
+            600, 601, 602, 611, 612, 615, 616, 620, 621, 622,
+            701, 711, 721, 731, 741, 751, 761, 762, 771, 781,
+            800, 801, 802, 803, 804,
+            900, 901, 902, 903, 904, 905, 906,
+            951, 952, 953, 954, 955, 956, 957, 958, 959, 960, 961, 962};
+
+    private static final byte NONE = -1;
+
+    // By code - FIRST_CODE
+    private static final byte[] ART = new byte[LAST_CODE - FIRST_CODE + 1];
+    private static final byte[] IMAGE = new byte[ART.length];
+    private static final byte[] DESCRIPTION = new byte[ART.length];
+
+    static {
+        fill(ART, NONE);
+        fill(IMAGE, NONE);
+        fill(DESCRIPTION, NONE);
+
+        // Later ranges do not override earlier ones, as in the if/else chains these replace
+        art(200, 232, ART_STORM);
+        art(300, 321, ART_LIGHT_RAIN);
+        art(500, 504, ART_RAIN);
+        art(511, 511, ART_SNOW);
+        art(520, 531, ART_RAIN);
+        art(600, 622, ART_SNOW);
+        art(701, 761, ART_FOG);
+        art(781, 781, ART_STORM);
+        art(800, 800, ART_CLEAR);
+        art(801, 801, ART_LIGHT_CLOUDS);
+        art(802, 804, ART_CLOUDS);
+
+        for (int i = 0; i < ART.length; i++) {
+            IMAGE[i] = ART[i];
+        }
+        IMAGE[781 - FIRST_CODE] = IMAGE_DUST;
+
+        for (int code = 200; code <= 232; code++) {
+            DESCRIPTION[code - FIRST_CODE] = 0;
+        }
+        for (int code = 300; code <= 321; code++) {
+            DESCRIPTION[code - FIRST_CODE] = 1;
+        }
+        for (int i = 2; i < DESCRIPTION_CODES.length; i++) {
+            DESCRIPTION[DESCRIPTION_CODES[i] - FIRST_CODE] = (byte) i;
+        }
+    }
+
+    private WeatherConditions() {
+    }
+
+    private static void fill(byte[] table, byte value) {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = value;
+        }
+    }
+
+    private static void art(int first, int last, int art) {
+        for (int code = first; code <= last; code++) {
+            if (ART[code - FIRST_CODE] == NONE) {
+                ART[code - FIRST_CODE] = (byte) art;
+            }
+        }
+    }
+
+    private static int lookup(byte[] table, int code) {
+        return code >= FIRST_CODE && code <= LAST_CODE ? table[code - FIRST_CODE] : NONE;
+    }
+
+    /**
+     * @return one of the ART_ constants, {@link #ART_NONE} if the condition has no art
+     */
+    public static int getArt(int code) {
+        return lookup(ART, code);
+    }
+
+    // Name of the condition's art in the art pack urls, null if it has none
+    public static String getArtName(int code) {
+        int art = lookup(ART, code);
+        return art == NONE ? null : ART_NAMES[art];
+    }
+
+    // Name of one of the ART_ constants in the art pack urls
+    public static String getNameOfArt(int art) {
+        return ART_NAMES[art];
+    }
+
+    // Url of a photo of the condition, null if there is none
+    public static String getImageUrl(int code) {
+        int image = lookup(IMAGE, code);
+        return image == NONE ? null : IMAGE_URLS[image];
+    }
+
+    /**
+     * @return the index of the condition's description in {@link #DESCRIPTION_CODES}, or -1 if
+     * it has none
+     */
+    public static int getDescription(int code) {
+        return lookup(DESCRIPTION, code);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.sunshine.app.common;
+
+/**
+ * Formats wind speed and direction, e.g. "12 km/h NW", without allocating: the speed is appended
+ * to a caller supplied builder and the compass direction comes from a table of constants.
+ */
+public final class WindFormatter {
+
+    public static final String UNKNOWN_DIRECTION = "Unknown";
+
+    private static final double MPH_PER_KMH = .621371192237334;
+
+    // Compass directions of the eight 45 degree sectors, the first one centred on north
+    private static final String[] DIRECTIONS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    private WindFormatter() {
+    }
+
+    public static double toDisplayUnits(double kmh, boolean metric) {
+        return metric ? kmh : MPH_PER_KMH * kmh;
+    }
+
+    /**
+     * @return the compass direction of a wind direction in degrees, or {@link #UNKNOWN_DIRECTION}
+     * if it is not a number
+     */
+    public static String direction(float degrees) {
+        if (Float.isNaN(degrees)) {
+            return UNKNOWN_DIRECTION;
+        }
+        if (degrees >= 337.5 || degrees < 22.5) {
+            return DIRECTIONS[0];
+        }
+        // In double, so degrees just below a sector boundary do not round onto it
+        return DIRECTIONS[(int) ((degrees + 22.5) / 45)];
+    }
+
+    // Append the speed rounded to whole km/h or mph, as "%1$1.0f" does
+    public static StringBuilder appendSpeed(StringBuilder builder, double kmh, boolean metric) {
+        return builder.append(TemperatureFormatter.round(toDisplayUnits(kmh, metric)));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.sunshine.app.common.config;
+
+/**
+ * Immutable watch face configuration as set on the phone and applied on the watch. Colours are
+ * ARGB ints, so the watch never parses colour names.
+ * <p/>
+ * The phone bumps {@link #version} on every change, the watch skips anything not newer than what
+ * it has applied.
+ */
+public final class WatchFaceConfig {
+
+    // Bits of flags
+    public static final int FLAG_SHOW_SECONDS = 1;
+    static final int KNOWN_FLAGS = FLAG_SHOW_SECONDS;
+
+    // Temperature units, either those picked in the phone app or a fixed choice for the watch
+    public static final int UNITS_FOLLOW_PHONE = 0;
+    public static final int UNITS_METRIC = 1;
+    public static final int UNITS_IMPERIAL = 2;
+
+    // Layout variants, only the standard one exists so far
+    public static final int LAYOUT_STANDARD = 0;
+    static final int LAYOUT_COUNT = 1;
+
+    public static final WatchFaceConfig DEFAULT = new WatchFaceConfig(0, 0xFF000000, 0xFFFFFFFF,
+            FLAG_SHOW_SECONDS, UNITS_FOLLOW_PHONE, LAYOUT_STANDARD);
+
+    public final long version;
+    public final int backgroundColour;
+    public final int dateAndTimeColour;
+    public final int flags;
+    public final int units;
+    public final int layout;
+
+    public WatchFaceConfig(long version, int backgroundColour, int dateAndTimeColour, int flags,
+                           int units, int layout) {
+        this.version = version;
+        this.backgroundColour = backgroundColour;
+        this.dateAndTimeColour = dateAndTimeColour;
+        this.flags = flags;
+        this.units = units;
+        this.layout = layout;
+    }
+
+    public boolean showSeconds() {
+        return (flags & FLAG_SHOW_SECONDS) != 0;
+    }
+
+    // Resolve the units to use for weather the phone sent in the given units
+    public boolean isMetric(boolean phoneMetric) {
+        switch (units) {
+            case UNITS_METRIC:
+                return true;
+            case UNITS_IMPERIAL:
+                return false;
+            default:
+                return phoneMetric;
+        }
+    }
+
+    public WatchFaceConfig withVersion(long newVersion) {
+        return new WatchFaceConfig(newVersion, backgroundColour, dateAndTimeColour, flags, units, layout);
+    }
+
+    // Compare the settings themselves, ignoring the version
+    public boolean hasSameContentAs(WatchFaceConfig other) {
+        return backgroundColour == other.backgroundColour && dateAndTimeColour == other.dateAndTimeColour
+                && flags == other.flags && units == other.units && layout == other.layout;
+    }
+
+    /**
+     * Describe what is wrong with this configuration.
+     *
+     * @return null when it can be applied as is
+     */
+    public String findProblem() {
+        if (version < 0) {
+            return "Negative version " + version;
+        }
+        if ((backgroundColour >>> 24) != 0xFF) {
+            return "Background colour must be opaque";
+        }
+        if (dateAndTimeColour == backgroundColour) {
+            return "Date and time would be invisible on the background";
+        }
+        if ((flags & ~KNOWN_FLAGS) != 0) {
+            return "Unknown flags " + Integer.toHexString(flags & ~KNOWN_FLAGS);
+        }
+        if (units < UNITS_FOLLOW_PHONE || units > UNITS_IMPERIAL) {
+            return "Unknown units " + units;
+        }
+        if (layout < 0 || layout >= LAYOUT_COUNT) {
+            return "Unknown layout " + layout;
+        }
+        return null;
+    }
+
+    public void validate() {
+        String problem = findProblem();
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WatchFaceConfig{version=" + version + ", background=" + Integer.toHexString(backgroundColour)
+                + ", dateAndTime=" + Integer.toHexString(dateAndTimeColour) + ", flags=" + flags
+                + ", units=" + units + ", layout=" + layout + "}";
+    }
+}
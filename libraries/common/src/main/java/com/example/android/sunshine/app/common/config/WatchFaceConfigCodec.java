@@ -0,0 +1,59 @@
+package com.example.android.sunshine.app.common.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Compact binary form of a {@link WatchFaceConfig}, sent as a single byte array in the settings
+ * DataItem. Every field is fixed size, 20 bytes in total.
+ */
+public final class WatchFaceConfigCodec {
+
+    static final byte SCHEMA_VERSION = 1;
+    static final int ENCODED_LENGTH = 20;
+
+    private WatchFaceConfigCodec() {
+    }
+
+    public static byte[] encode(WatchFaceConfig config) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(ENCODED_LENGTH);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(SCHEMA_VERSION);
+            out.writeLong(config.version);
+            out.writeInt(config.backgroundColour);
+            out.writeInt(config.dateAndTimeColour);
+            out.writeByte(config.flags);
+            out.writeByte(config.units);
+            out.writeByte(config.layout);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode and validate a configuration.
+     *
+     * @throws IllegalArgumentException if the payload is malformed, from another schema version or
+     *                                  describes a configuration that can not be applied
+     */
+    public static WatchFaceConfig decode(byte[] payload) {
+        if (payload == null || payload.length != ENCODED_LENGTH || payload[0] != SCHEMA_VERSION) {
+            throw new IllegalArgumentException("Unsupported watch face config payload");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+        WatchFaceConfig config;
+        try {
+            config = new WatchFaceConfig(in.readLong(), in.readInt(), in.readInt(),
+                    in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed watch face config", e);
+        }
+        config.validate();
+        return config;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.android.sunshine.app.common.sync;
+
+/**
+ * Immutable copy of the weather shown on the watch, tagged with the version the phone assigned to it.
+ * Temperatures are raw Celsius values, the watch formats them for the unit the user picked.
+ */
+public final class WeatherSnapshot {
+
+    public static final WeatherSnapshot EMPTY = new WeatherSnapshot(0, -1, 0, 0, true);
+
+    public final long version;
+    public final int weatherId;
+    public final float high;
+    public final float low;
+    public final boolean metric;
+
+    public WeatherSnapshot(long version, int weatherId, float high, float low, boolean metric) {
+        this.version = version;
+        this.weatherId = weatherId;
+        this.high = high;
+        this.low = low;
+        this.metric = metric;
+    }
+
+    // True until real weather has been received or published
+    public boolean isEmpty() {
+        return weatherId == -1;
+    }
+
+    public WeatherSnapshot withVersion(long newVersion) {
+        return new WeatherSnapshot(newVersion, weatherId, high, low, metric);
+    }
+
+    // Compare the weather itself, ignoring the version
+    public boolean hasSameContentAs(WeatherSnapshot other) {
+        return weatherId == other.weatherId && Float.compare(high, other.high) == 0
+                && Float.compare(low, other.low) == 0 && metric == other.metric;
+    }
+
+    @Override
+    public String toString() {
+        return "WeatherSnapshot{version=" + version + ", weatherId=" + weatherId + ", high=" + high
+                + ", low=" + low + ", metric=" + metric + "}";
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.sunshine.app.common.sync;
+
+/**
+ * Watch side of the weather exchange. Remembers the last snapshot applied, asks the phone for
+ * anything newer than its version and applies the reply.
+ */
+public class WeatherSyncClient {
+
+    public interface Listener {
+
+        // Called whenever the applied weather changes
+        void onWeatherChanged(WeatherSnapshot snapshot);
+
+        // Called for every valid reply of the phone, up to date ones included
+        void onWeatherChecked();
+    }
+
+    private final WeatherSyncTransport mTransport;
+    private final Listener mListener;
+    private WeatherSnapshot mSnapshot = WeatherSnapshot.EMPTY;
+
+    public WeatherSyncClient(WeatherSyncTransport transport, Listener listener) {
+        this.mTransport = transport;
+        this.mListener = listener;
+    }
+
+    public synchronized WeatherSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Start from a snapshot kept across restarts, without notifying the listener.
+     *
+     * @return true if it was taken, false if the client already had weather
+     */
+    public synchronized boolean restore(WeatherSnapshot snapshot) {
+        if (mSnapshot.isEmpty() && !snapshot.isEmpty()) {
+            mSnapshot = snapshot;
+            return true;
+        }
+        return false;
+    }
+
+    // Send our last seen version to the phone
+    public void requestUpdate() {
+        long version;
+        synchronized (this) {
+            version = mSnapshot.version;
+        }
+        mTransport.send(WeatherSyncProtocol.REQUEST_PATH, WeatherSyncProtocol.encodeRequest(version));
+    }
+
+    // Ask for a full snapshot whatever our version, keeping what we have until it arrives
+    private void requestFull() {
+        mTransport.send(WeatherSyncProtocol.REQUEST_PATH,
+                WeatherSyncProtocol.encodeRequest(WeatherSnapshot.EMPTY.version));
+    }
+
+    // Handle a payload received on WeatherSyncProtocol#RESPONSE_PATH
+    public void onResponse(byte[] payload) {
+        WeatherSnapshot result;
+        boolean changed;
+        synchronized (this) {
+            result = WeatherSyncProtocol.applyResponse(mSnapshot, payload);
+            // A reply older than a snapshot pushed in the meantime changes nothing
+            changed = result != null && result != mSnapshot && result.version >= mSnapshot.version;
+            if (changed) {
+                mSnapshot = result;
+            }
+        }
+        if (result == null) {
+            // Delta against a version we no longer have, start over with a full snapshot
+            requestFull();
+            return;
+        }
+        mListener.onWeatherChecked();
+        if (changed) {
+            mListener.onWeatherChanged(result);
+        }
+    }
+
+    // Apply a snapshot the phone pushed on its own, e.g. right after a sync
+    public void apply(WeatherSnapshot pushed) {
+        boolean changed;
+        synchronized (this) {
+            // Versions only grow, an older push was overtaken by what we already have
+            if (pushed.version < mSnapshot.version) {
+                return;
+            }
+            changed = pushed.version != mSnapshot.version || !pushed.hasSameContentAs(mSnapshot);
+            if (changed) {
+                mSnapshot = pushed;
+            }
+        }
+        mListener.onWeatherChecked();
+        if (changed) {
+            mListener.onWeatherChanged(pushed);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.android.sunshine.app.common.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Wire format of the watch/phone weather exchange, sent over the MessageApi.
+ * <p/>
+ * The watch sends the version of the weather it last applied on {@link #REQUEST_PATH}. The phone
+ * answers on {@link #RESPONSE_PATH} with either "up to date", the fields that changed since that
+ * version, or the full snapshot when it can not compute a delta. Nothing is written as a DataItem,
+ * so a request no longer syncs a throwaway item between the devices.
+ */
+public final class WeatherSyncProtocol {
+
+    public static final String REQUEST_PATH = "/weather_sync/request";
+    public static final String RESPONSE_PATH = "/weather_sync/response";
+
+    static final byte WIRE_VERSION = 2;
+
+    // Response types
+    public static final byte TYPE_UP_TO_DATE = 0;
+    public static final byte TYPE_FULL = 1;
+    public static final byte TYPE_DELTA = 2;
+
+    // Bits of the field mask used by full and delta responses
+    static final int FIELD_WEATHER_ID = 1;
+    static final int FIELD_HIGH = 1 << 1;
+    static final int FIELD_LOW = 1 << 2;
+    static final int FIELD_METRIC = 1 << 3;
+    static final int ALL_FIELDS = FIELD_WEATHER_ID | FIELD_HIGH | FIELD_LOW | FIELD_METRIC;
+
+    private WeatherSyncProtocol() {
+    }
+
+    public static byte[] encodeRequest(long lastSeenVersion) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(WIRE_VERSION);
+            out.writeLong(lastSeenVersion);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static long decodeRequest(byte[] payload) {
+        DataInputStream in = open(payload);
+        try {
+            return in.readLong();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed weather sync request", e);
+        }
+    }
+
+    static byte[] encodeUpToDate(long version) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(10);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(WIRE_VERSION);
+            out.writeByte(TYPE_UP_TO_DATE);
+            out.writeLong(version);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] encodeFull(WeatherSnapshot current) {
+        return encode(TYPE_FULL, 0, current, ALL_FIELDS);
+    }
+
+    // Only the fields that differ between base and current are written
+    static byte[] encodeDelta(WeatherSnapshot base, WeatherSnapshot current) {
+        int fields = 0;
+        if (base.weatherId != current.weatherId) {
+            fields |= FIELD_WEATHER_ID;
+        }
+        if (Float.compare(base.high, current.high) != 0) {
+            fields |= FIELD_HIGH;
+        }
+        if (Float.compare(base.low, current.low) != 0) {
+            fields |= FIELD_LOW;
+        }
+        if (base.metric != current.metric) {
+            fields |= FIELD_METRIC;
+        }
+        return encode(TYPE_DELTA, base.version, current, fields);
+    }
+
+    private static byte[] encode(byte type, long baseVersion, WeatherSnapshot snapshot, int fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(WIRE_VERSION);
+            out.writeByte(type);
+            out.writeLong(snapshot.version);
+            if (type == TYPE_DELTA) {
+                out.writeLong(baseVersion);
+            }
+            out.writeByte(fields);
+            if ((fields & FIELD_WEATHER_ID) != 0) {
+                out.writeInt(snapshot.weatherId);
+            }
+            if ((fields & FIELD_HIGH) != 0) {
+                out.writeFloat(snapshot.high);
+            }
+            if ((fields & FIELD_LOW) != 0) {
+                out.writeFloat(snapshot.low);
+            }
+            if ((fields & FIELD_METRIC) != 0) {
+                out.writeBoolean(snapshot.metric);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Apply a response to the snapshot the watch currently has.
+     *
+     * @return the resulting snapshot, the same instance when the phone said we are up to date, or
+     * null when the response is a delta against a version we do not have
+     */
+    public static WeatherSnapshot applyResponse(WeatherSnapshot local, byte[] payload) {
+        DataInputStream in = open(payload);
+        try {
+            byte type = in.readByte();
+            long version = in.readLong();
+            if (type == TYPE_UP_TO_DATE) {
+                return local;
+            }
+            if (type == TYPE_DELTA && in.readLong() != local.version) {
+                return null;
+            }
+            if (type != TYPE_DELTA && type != TYPE_FULL) {
+                throw new IllegalArgumentException("Unknown weather sync response type " + type);
+            }
+            int fields = in.readByte();
+            int weatherId = (fields & FIELD_WEATHER_ID) != 0 ? in.readInt() : local.weatherId;
+            float high = (fields & FIELD_HIGH) != 0 ? in.readFloat() : local.high;
+            float low = (fields & FIELD_LOW) != 0 ? in.readFloat() : local.low;
+            boolean metric = (fields & FIELD_METRIC) != 0 ? in.readBoolean() : local.metric;
+            return new WeatherSnapshot(version, weatherId, high, low, metric);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed weather sync response", e);
+        }
+    }
+
+    // Compact standalone form of a snapshot, for storing it or handing it to other readers
+    public static byte[] encodeSnapshot(WeatherSnapshot snapshot) {
+        return encodeFull(snapshot);
+    }
+
+    public static WeatherSnapshot decodeSnapshot(byte[] payload) {
+        if (payload == null || payload.length < 2 || payload[1] != TYPE_FULL) {
+            throw new IllegalArgumentException("Not an encoded weather snapshot");
+        }
+        return applyResponse(WeatherSnapshot.EMPTY, payload);
+    }
+
+    private static DataInputStream open(byte[] payload) {
+        if (payload == null || payload.length == 0 || payload[0] != WIRE_VERSION) {
+            throw new IllegalArgumentException("Unsupported weather sync payload");
+        }
+        return new DataInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.android.sunshine.app.common.sync;
+
+/**
+ * Phone side of the weather exchange. Keeps the current snapshot and the one before it, so a watch
+ * that is a single version behind gets only the changed fields.
+ * <p/>
+ * Versions start from the creation time in milliseconds and grow by one per content change, so they
+ * keep increasing across process restarts.
+ */
+public class WeatherSyncServer {
+
+    private WeatherSnapshot mPrevious = WeatherSnapshot.EMPTY;
+    private WeatherSnapshot mCurrent;
+
+    public WeatherSyncServer(long initialVersion) {
+        mCurrent = WeatherSnapshot.EMPTY.withVersion(initialVersion);
+    }
+
+    // Record the latest weather, bumping the version only if something actually changed
+    public synchronized WeatherSnapshot publish(int weatherId, float high, float low, boolean metric) {
+        WeatherSnapshot candidate = new WeatherSnapshot(mCurrent.version + 1, weatherId, high, low, metric);
+        if (!mCurrent.isEmpty() && mCurrent.hasSameContentAs(candidate)) {
+            return mCurrent;
+        }
+        mPrevious = mCurrent;
+        mCurrent = candidate;
+        return mCurrent;
+    }
+
+    public synchronized WeatherSnapshot getCurrent() {
+        return mCurrent;
+    }
+
+    public synchronized byte[] handleRequest(byte[] request) {
+        long lastSeenVersion = WeatherSyncProtocol.decodeRequest(request);
+        // Nothing published yet, there is nothing newer than what the watch has
+        if (mCurrent.isEmpty() || lastSeenVersion == mCurrent.version) {
+            return WeatherSyncProtocol.encodeUpToDate(lastSeenVersion);
+        }
+        if (lastSeenVersion == mPrevious.version && !mPrevious.isEmpty()) {
+            return WeatherSyncProtocol.encodeDelta(mPrevious, mCurrent);
+        }
+        return WeatherSyncProtocol.encodeFull(mCurrent);
+    }
+}
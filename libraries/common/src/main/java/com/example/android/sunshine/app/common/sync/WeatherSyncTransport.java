@@ -0,0 +1,10 @@
+package com.example.android.sunshine.app.common.sync;
+
+/**
+ * Sends a protocol payload to the other device. On the devices this is backed by the MessageApi,
+ * tests use an in-process implementation.
+ */
+public interface WeatherSyncTransport {
+
+    void send(String path, byte[] payload);
+}
@@ -0,0 +1,36 @@
+package com.example.android.sunshine.app.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DayStringCacheTest {
+
+    @Test
+    public void returnsWhatWasPut() {
+        DayStringCache cache = new DayStringCache(16);
+        cache.put(2457389, "Friday");
+
+        assertEquals("Friday", cache.get(2457389));
+        assertNull(cache.get(2457390));
+    }
+
+    @Test
+    public void daysSharingASlotReplaceEachOther() {
+        DayStringCache cache = new DayStringCache(16);
+        cache.put(2457389, "Friday");
+        cache.put(2457389 + 16, "Sunday");
+
+        assertNull(cache.get(2457389));
+        assertEquals("Sunday", cache.get(2457389 + 16));
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        DayStringCache cache = new DayStringCache(16);
+        cache.put(0, "Monday");
+        cache.clear();
+
+        assertNull(cache.get(0));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.android.sunshine.app.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FormatTemplateTest {
+
+    @Test
+    public void fillsTwoArguments() {
+        FormatTemplate template = FormatTemplate.parse("%1$s, %2$s", "%1$s", "%2$s");
+
+        assertEquals("Today, June 24", template.append(new StringBuilder(), "Today", "June 24").toString());
+    }
+
+    @Test
+    public void keepsTextAroundArguments() {
+        FormatTemplate template = FormatTemplate.parse("%1$1.0f km/h %2$s", "%1$1.0f", "%2$s");
+        StringBuilder builder = new StringBuilder();
+        template.appendPrefix(builder).append(12);
+        template.appendMiddle(builder).append("NW");
+
+        assertEquals("12 km/h NW", template.appendSuffix(builder).toString());
+    }
+
+    @Test
+    public void rejectsFormatsItCannotFill() {
+        // Swapped arguments, another conversion, a missing argument and an escape
+        assertNull(FormatTemplate.parse("%2$s %1$s", "%1$s", "%2$s"));
+        assertNull(FormatTemplate.parse("%1$.1f km/h %2$s", "%1$1.0f", "%2$s"));
+        assertNull(FormatTemplate.parse("%1$s", "%1$s", "%2$s"));
+        assertNull(FormatTemplate.parse("%1$s%% %2$s", "%1$s", "%2$s"));
+    }
+}
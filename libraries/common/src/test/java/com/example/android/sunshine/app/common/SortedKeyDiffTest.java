@@ -0,0 +1,104 @@
+package com.example.android.sunshine.app.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SortedKeyDiffTest {
+
+    // Applies the dispatched ranges to a copy of the old keys and records them
+    private static class Recorder implements SortedKeyDiff.Callback {
+        final List<String> ops = new ArrayList<>();
+        final List<Long> rows = new ArrayList<>();
+        final long[] newKeys;
+
+        Recorder(long[] oldKeys, long[] newKeys) {
+            for (long key : oldKeys) {
+                rows.add(key);
+            }
+            this.newKeys = newKeys;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            ops.add("insert " + position + "+" + count);
+            for (int i = 0; i < count; i++) {
+                // The inserted row is the one of the new list at that position
+                rows.add(position + i, newKeys[position + i]);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            ops.add("remove " + position + "+" + count);
+            for (int i = 0; i < count; i++) {
+                rows.remove(position);
+            }
+        }
+
+        @Override
+        public void onChanged(int position, int count) {
+            ops.add("change " + position + "+" + count);
+        }
+    }
+
+    private static Recorder diff(long[] oldKeys, int[] oldHashes, long[] newKeys, int[] newHashes) {
+        SortedKeyDiff diff = SortedKeyDiff.compute(oldKeys, oldHashes, oldKeys.length,
+                newKeys, newHashes, newKeys.length);
+        assertNotNull(diff);
+        Recorder recorder = new Recorder(oldKeys, newKeys);
+        diff.dispatch(recorder);
+        assertEquals(newKeys.length, recorder.rows.size());
+        for (int i = 0; i < newKeys.length; i++) {
+            assertEquals(newKeys[i], (long) recorder.rows.get(i));
+        }
+        return recorder;
+    }
+
+    @Test
+    public void unchangedRowsProduceNothing() {
+        long[] keys = {1, 2, 3, 4};
+        int[] hashes = {10, 20, 30, 40};
+        SortedKeyDiff diff = SortedKeyDiff.compute(keys, hashes, 4, keys.clone(), hashes.clone(), 4);
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void changedRowsAreMergedIntoRanges() {
+        Recorder recorder = diff(new long[]{1, 2, 3, 4}, new int[]{10, 20, 30, 40},
+                new long[]{1, 2, 3, 4}, new int[]{10, 21, 31, 40});
+
+        assertEquals("[change 1+2]", recorder.ops.toString());
+    }
+
+    @Test
+    public void dayRolloverRemovesFirstAndAppendsLast() {
+        Recorder recorder = diff(new long[]{1, 2, 3, 4}, new int[]{10, 20, 30, 40},
+                new long[]{2, 3, 4, 5}, new int[]{20, 30, 40, 50});
+
+        assertEquals("[remove 0+1, insert 3+1]", recorder.ops.toString());
+    }
+
+    @Test
+    public void mixedEditsKeepPositionsConsistent() {
+        diff(new long[]{1, 3, 5, 7, 9}, new int[]{1, 3, 5, 7, 9},
+                new long[]{2, 3, 4, 5, 9, 10, 11}, new int[]{2, 3, 4, 6, 9, 10, 11});
+    }
+
+    @Test
+    public void fromAndToEmpty() {
+        assertEquals("[insert 0+3]", diff(new long[0], new int[0],
+                new long[]{1, 2, 3}, new int[]{1, 2, 3}).ops.toString());
+        assertEquals("[remove 0+3]", diff(new long[]{1, 2, 3}, new int[]{1, 2, 3},
+                new long[0], new int[0]).ops.toString());
+    }
+
+    @Test
+    public void unsortedKeysGiveNoDiff() {
+        assertNull(SortedKeyDiff.compute(new long[]{2, 1}, new int[]{0, 0}, 2, new long[0], new int[0], 0));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.android.sunshine.app.common;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class TemperatureFormatterTest {
+
+    // What Utility.formatTemperature produced with the "%1.0f°" resource
+    private static String legacyFormat(double celsius, boolean metric) {
+        double temperature = metric ? celsius : (celsius * 1.8) + 32;
+        return String.format(Locale.US, "%1.0f°", temperature);
+    }
+
+    @Test
+    public void matchesLegacyFormatting() {
+        char[] buffer = new char[24];
+        StringBuilder builder = new StringBuilder();
+        for (int tenths = -600; tenths <= 600; tenths++) {
+            double celsius = tenths / 10.0;
+            for (boolean metric : new boolean[]{true, false}) {
+                String expected = legacyFormat(celsius, metric);
+                if (expected.startsWith("-0")) {
+                    // String.format keeps the sign of values rounding to zero, we show plain "0°"
+                    expected = expected.substring(1);
+                }
+                assertEquals(expected, TemperatureFormatter.format(celsius, metric));
+                int length = TemperatureFormatter.format(buffer, 2, celsius, metric);
+                assertEquals(expected, new String(buffer, 2, length));
+                builder.setLength(0);
+                assertEquals(expected, TemperatureFormatter.append(builder, celsius, metric).toString());
+            }
+        }
+    }
+
+    @Test
+    public void convertsToFahrenheit() {
+        assertEquals("32°", TemperatureFormatter.format(0, false));
+        assertEquals("212°", TemperatureFormatter.format(100, false));
+        assertEquals("-40°", TemperatureFormatter.format(-40, false));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.android.sunshine.app.common;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WeatherConditionsTest {
+
+    // The chain Utility.getArtUrlForWeatherCondition and the icon and art lookups used
+    private static String legacyArtName(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "storm";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "light_rain";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "rain";
+        } else if (weatherId == 511) {
+            return "snow";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "rain";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "snow";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "fog";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "storm";
+        } else if (weatherId == 800) {
+            return "clear";
+        } else if (weatherId == 801) {
+            return "light_clouds";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "clouds";
+        }
+        return null;
+    }
+
+    // Utility.getImageUrlForWeatherCondition, by the file name of the photo
+    private static String legacyImage(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "Thunderstorm_in_Annemasse,_France.jpg";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "Rain_on_leaf_504605006.jpg";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "Rain-on-Thassos.jpg";
+        } else if (weatherId == 511) {
+            return "Fresh_snow.JPG";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "Rain-on-Thassos.jpg";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "Fresh_snow.JPG";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "Westminster_fog_-_London_-_UK.jpg";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg";
+        } else if (weatherId == 800) {
+            return "A_few_trees_and_the_sun_(6009964513).jpg";
+        } else if (weatherId == 801) {
+            return "Cloudy_Blue_Sky_(5031259890).jpg";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "Cloudy_hills_in_Elis,_Greece_2.jpg";
+        }
+        return null;
+    }
+
+    // Utility.getStringForWeatherCondition, by the suffix of the condition string name
+    private static String legacyDescription(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "2xx";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "3xx";
+        }
+        int[] cases = {500, 501, 502, 503, 504, 511, 520, 531, 600, 601, 602, 611, 612, 615, 616,
+                620, 621, 622, 701, 711, 721, 731, 741, 751, 761, 762, 771, 781, 800, 801, 802, 803,
+                804, 900, 901, 902, 903, 904, 905, 906, 951, 952, 953, 954, 955, 956, 957, 958, 959,
+                960, 961, 962};
+        for (int code : cases) {
+            if (code == weatherId) {
+                return String.valueOf(code);
+            }
+        }
+        return null;
+    }
+
+    private static String description(int weatherId) {
+        int description = WeatherConditions.getDescription(weatherId);
+        if (description < 0) {
+            return null;
+        }
+        int code = WeatherConditions.DESCRIPTION_CODES[description];
+        return code == 200 ? "2xx" : code == 300 ? "3xx" : String.valueOf(code);
+    }
+
+    @Test
+    public void matchesLegacyLookupsForEveryCode() {
+        for (int code = -1; code <= 1100; code++) {
+            String artName = legacyArtName(code);
+            assertEquals("art " + code, artName, WeatherConditions.getArtName(code));
+            assertEquals("art " + code, artName == null, WeatherConditions.getArt(code) == WeatherConditions.ART_NONE);
+
+            String image = legacyImage(code);
+            String imageUrl = WeatherConditions.getImageUrl(code);
+            if (image == null) {
+                assertNull("image " + code, imageUrl);
+            } else {
+                assertTrue("image " + code, imageUrl.endsWith("/" + image));
+            }
+
+            assertEquals("description " + code, legacyDescription(code), description(code));
+        }
+    }
+
+    @Test
+    public void descriptionCodesAreDistinct() {
+        for (int i = 0; i < WeatherConditions.DESCRIPTION_CODES.length; i++) {
+            assertEquals(i, WeatherConditions.getDescription(WeatherConditions.DESCRIPTION_CODES[i]));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.sunshine.app.common;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class WindFormatterTest {
+
+    // The if/else chain Utility.getFormattedWind used
+    private static String legacyDirection(float degrees) {
+        String direction = "Unknown";
+        if (degrees >= 337.5 || degrees < 22.5) {
+            direction = "N";
+        } else if (degrees >= 22.5 && degrees < 67.5) {
+            direction = "NE";
+        } else if (degrees >= 67.5 && degrees < 112.5) {
+            direction = "E";
+        } else if (degrees >= 112.5 && degrees < 157.5) {
+            direction = "SE";
+        } else if (degrees >= 157.5 && degrees < 202.5) {
+            direction = "S";
+        } else if (degrees >= 202.5 && degrees < 247.5) {
+            direction = "SW";
+        } else if (degrees >= 247.5 && degrees < 292.5) {
+            direction = "W";
+        } else if (degrees >= 292.5 && degrees < 337.5) {
+            direction = "NW";
+        }
+        return direction;
+    }
+
+    @Test
+    public void directionMatchesLegacyChain() {
+        for (int tenths = 0; tenths <= 7200; tenths++) {
+            float degrees = tenths / 10f;
+            assertEquals(String.valueOf(degrees), legacyDirection(degrees), WindFormatter.direction(degrees));
+        }
+        for (float boundary = 22.5f; boundary < 360; boundary += 45) {
+            float below = Math.nextAfter(boundary, 0);
+            assertEquals(legacyDirection(below), WindFormatter.direction(below));
+            assertEquals(legacyDirection(boundary), WindFormatter.direction(boundary));
+        }
+    }
+
+    @Test
+    public void outOfRangeDirections() {
+        assertEquals(legacyDirection(-1), WindFormatter.direction(-1));
+        assertEquals(legacyDirection(720.5f), WindFormatter.direction(720.5f));
+        assertEquals(WindFormatter.UNKNOWN_DIRECTION, WindFormatter.direction(Float.NaN));
+    }
+
+    @Test
+    public void speedMatchesLegacyFormatting() {
+        StringBuilder builder = new StringBuilder();
+        for (int tenths = 0; tenths <= 2000; tenths++) {
+            float kmh = tenths / 10f;
+            builder.setLength(0);
+            assertEquals(String.format(Locale.US, "%1$1.0f", kmh),
+                    WindFormatter.appendSpeed(builder, kmh, true).toString());
+            builder.setLength(0);
+            assertEquals(String.format(Locale.US, "%1$1.0f", .621371192237334f * kmh),
+                    WindFormatter.appendSpeed(builder, kmh, false).toString());
+        }
+    }
+}
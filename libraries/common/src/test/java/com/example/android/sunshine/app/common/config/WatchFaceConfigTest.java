@@ -0,0 +1,59 @@
+package com.example.android.sunshine.app.common.config;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WatchFaceConfigTest {
+
+    private static final WatchFaceConfig RED_ON_BLACK = new WatchFaceConfig(7, 0xFF000000, 0xFFFF0000,
+            0, WatchFaceConfig.UNITS_IMPERIAL, WatchFaceConfig.LAYOUT_STANDARD);
+
+    @Test
+    public void roundTripsThroughCodec() {
+        byte[] bytes = WatchFaceConfigCodec.encode(RED_ON_BLACK);
+        WatchFaceConfig decoded = WatchFaceConfigCodec.decode(bytes);
+
+        assertEquals(WatchFaceConfigCodec.ENCODED_LENGTH, bytes.length);
+        assertEquals(7, decoded.version);
+        assertTrue(RED_ON_BLACK.hasSameContentAs(decoded));
+        assertFalse(decoded.showSeconds());
+        assertFalse(decoded.isMetric(true));
+    }
+
+    @Test
+    public void defaultIsValid() {
+        assertNull(WatchFaceConfig.DEFAULT.findProblem());
+        assertTrue(WatchFaceConfig.DEFAULT.showSeconds());
+        assertTrue(WatchFaceConfig.DEFAULT.isMetric(true));
+        assertFalse(WatchFaceConfig.DEFAULT.isMetric(false));
+    }
+
+    @Test
+    public void versionIsIgnoredWhenComparingContent() {
+        assertTrue(RED_ON_BLACK.hasSameContentAs(RED_ON_BLACK.withVersion(8)));
+        assertFalse(RED_ON_BLACK.hasSameContentAs(WatchFaceConfig.DEFAULT));
+    }
+
+    @Test
+    public void validatorRejectsUnusableConfigs() {
+        assertNotNull(new WatchFaceConfig(1, 0x80000000, 0xFFFFFFFF, 0, 0, 0).findProblem());
+        assertNotNull(new WatchFaceConfig(1, 0xFF000000, 0xFF000000, 0, 0, 0).findProblem());
+        assertNotNull(new WatchFaceConfig(1, 0xFF000000, 0xFFFFFFFF, 0x80, 0, 0).findProblem());
+        assertNotNull(new WatchFaceConfig(1, 0xFF000000, 0xFFFFFFFF, 0, 3, 0).findProblem());
+        assertNotNull(new WatchFaceConfig(1, 0xFF000000, 0xFFFFFFFF, 0, 0, 1).findProblem());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsInvalidConfig() {
+        WatchFaceConfigCodec.decode(WatchFaceConfigCodec.encode(
+                new WatchFaceConfig(1, 0xFFFFFFFF, 0xFFFFFFFF, 0, 0, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsOtherSchemaVersion() {
+        byte[] bytes = WatchFaceConfigCodec.encode(RED_ON_BLACK);
+        bytes[0] = 2;
+        WatchFaceConfigCodec.decode(bytes);
+    }
+}
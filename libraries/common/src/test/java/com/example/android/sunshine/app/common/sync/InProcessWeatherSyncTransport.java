@@ -0,0 +1,39 @@
+package com.example.android.sunshine.app.common.sync;
+
+/**
+ * Fake transport wiring a {@link WeatherSyncClient} straight to a {@link WeatherSyncServer}, keeping
+ * count of messages and bytes exchanged in both directions.
+ */
+public class InProcessWeatherSyncTransport implements WeatherSyncTransport {
+
+    private final WeatherSyncServer mServer;
+    private WeatherSyncClient mClient;
+
+    int requests;
+    int responses;
+    long bytesToPhone;
+    long bytesToWatch;
+    long lastSeenVersion = -1;
+
+    public InProcessWeatherSyncTransport(WeatherSyncServer server) {
+        this.mServer = server;
+    }
+
+    public void attach(WeatherSyncClient client) {
+        this.mClient = client;
+    }
+
+    @Override
+    public void send(String path, byte[] payload) {
+        if (!WeatherSyncProtocol.REQUEST_PATH.equals(path)) {
+            throw new IllegalArgumentException("Unexpected path " + path);
+        }
+        requests++;
+        lastSeenVersion = WeatherSyncProtocol.decodeRequest(payload);
+        bytesToPhone += payload.length;
+        byte[] response = mServer.handleRequest(payload);
+        responses++;
+        bytesToWatch += response.length;
+        mClient.onResponse(response);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.android.sunshine.app.common.sync;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WeatherSyncProtocolTest {
+
+    private WeatherSyncServer mServer;
+    private InProcessWeatherSyncTransport mTransport;
+    private WeatherSyncClient mClient;
+    private final List<WeatherSnapshot> mChanges = new ArrayList<>();
+    private int mChecks;
+
+    @Before
+    public void setUp() {
+        mServer = new WeatherSyncServer(1000);
+        mTransport = new InProcessWeatherSyncTransport(mServer);
+        mClient = new WeatherSyncClient(mTransport, new WeatherSyncClient.Listener() {
+            @Override
+            public void onWeatherChanged(WeatherSnapshot snapshot) {
+                mChanges.add(snapshot);
+            }
+
+            @Override
+            public void onWeatherChecked() {
+                mChecks++;
+            }
+        });
+        mTransport.attach(mClient);
+    }
+
+    @Test
+    public void firstRequestGetsFullSnapshot() {
+        mServer.publish(800, 21f, 12f, true);
+        mClient.requestUpdate();
+
+        assertEquals(1, mChanges.size());
+        WeatherSnapshot snapshot = mClient.getSnapshot();
+        assertEquals(mServer.getCurrent().version, snapshot.version);
+        assertEquals(800, snapshot.weatherId);
+        assertEquals(21f, snapshot.high, 0f);
+        assertEquals(12f, snapshot.low, 0f);
+        assertTrue(snapshot.metric);
+    }
+
+    @Test
+    public void repeatedRequestIsUpToDate() {
+        mServer.publish(800, 21f, 12f, true);
+        mClient.requestUpdate();
+        long bytesAfterFirst = mTransport.bytesToWatch;
+
+        mClient.requestUpdate();
+        mClient.requestUpdate();
+
+        assertEquals(1, mChanges.size());
+        // Every reply counts as a check, so the watch does not ask again while it is fresh
+        assertEquals(3, mChecks);
+        // "Up to date" replies are a header and a version only
+        assertEquals(2 * 10, mTransport.bytesToWatch - bytesAfterFirst);
+    }
+
+    @Test
+    public void republishingSameWeatherKeepsVersion() {
+        long version = mServer.publish(800, 21f, 12f, true).version;
+        assertEquals(version, mServer.publish(800, 21f, 12f, true).version);
+    }
+
+    @Test
+    public void oneVersionBehindGetsDelta() {
+        mServer.publish(800, 21f, 12f, true);
+        mClient.requestUpdate();
+        WeatherSnapshot base = mClient.getSnapshot();
+
+        mServer.publish(800, 23f, 12f, true);
+        byte[] delta = mServer.handleRequest(WeatherSyncProtocol.encodeRequest(base.version));
+        byte[] full = WeatherSyncProtocol.encodeFull(mServer.getCurrent());
+        assertTrue(delta.length < full.length);
+
+        mClient.requestUpdate();
+        assertEquals(2, mChanges.size());
+        assertEquals(23f, mClient.getSnapshot().high, 0f);
+        assertEquals(12f, mClient.getSnapshot().low, 0f);
+        assertEquals(800, mClient.getSnapshot().weatherId);
+    }
+
+    @Test
+    public void unitChangeOnlySendsTheFlag() {
+        mServer.publish(800, 21f, 12f, true);
+        mClient.requestUpdate();
+        WeatherSnapshot base = mClient.getSnapshot();
+
+        mServer.publish(800, 21f, 12f, false);
+        byte[] delta = mServer.handleRequest(WeatherSyncProtocol.encodeRequest(base.version));
+        // header, type, version, base version, field mask and the flag itself
+        assertEquals(1 + 1 + 8 + 8 + 1 + 1, delta.length);
+
+        mClient.requestUpdate();
+        assertFalse(mClient.getSnapshot().metric);
+        assertEquals(21f, mClient.getSnapshot().high, 0f);
+    }
+
+    @Test
+    public void severalVersionsBehindGetsFullSnapshot() {
+        mServer.publish(800, 21f, 12f, true);
+        mClient.requestUpdate();
+        mServer.publish(500, 18f, 11f, true);
+        mServer.publish(501, 17f, 10f, true);
+
+        mClient.requestUpdate();
+        assertEquals(501, mClient.getSnapshot().weatherId);
+        assertEquals(mServer.getCurrent().version, mClient.getSnapshot().version);
+    }
+
+    @Test
+    public void deltaAgainstUnknownBaseTriggersFullResync() {
+        mServer.publish(800, 21f, 12f, true);
+        WeatherSnapshot previous = mServer.getCurrent();
+        mServer.publish(801, 21f, 12f, true);
+        byte[] delta = WeatherSyncProtocol.encodeDelta(previous, mServer.getCurrent());
+
+        // The client never saw the base version, so it must ask again from scratch
+        mClient.onResponse(delta);
+        assertEquals(801, mClient.getSnapshot().weatherId);
+        assertEquals(21f, mClient.getSnapshot().high, 0f);
+        assertEquals(1, mTransport.requests);
+    }
+
+    @Test
+    public void snapshotRoundTripsThroughCompactForm() {
+        WeatherSnapshot snapshot = mServer.publish(502, -3.5f, -11f, false);
+
+        byte[] bytes = WeatherSyncProtocol.encodeSnapshot(snapshot);
+        WeatherSnapshot decoded = WeatherSyncProtocol.decodeSnapshot(bytes);
+
+        assertEquals(snapshot.version, decoded.version);
+        assertTrue(snapshot.hasSameContentAs(decoded));
+        // Header, version, field mask, id, two floats and the flag
+        assertEquals(24, bytes.length);
+    }
+
+    @Test
+    public void restoredSnapshotIsUsedForTheNextRequest() {
+        WeatherSnapshot snapshot = mServer.publish(800, 21f, 12f, true);
+        mClient.restore(snapshot);
+
+        mClient.requestUpdate();
+
+        assertTrue(mChanges.isEmpty());
+        assertEquals(snapshot.version, mClient.getSnapshot().version);
+    }
+
+    @Test
+    public void nothingPublishedIsUpToDate() {
+        mClient.requestUpdate();
+        assertTrue(mChanges.isEmpty());
+        assertTrue(mClient.getSnapshot().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownWireVersion() {
+        WeatherSyncProtocol.decodeRequest(new byte[]{42, 0, 0, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test
+    public void olderPushIsIgnored() {
+        WeatherSnapshot older = mServer.publish(800, 21f, 12f, true);
+        WeatherSnapshot newer = mServer.publish(500, 18f, 11f, true);
+        assertTrue(older.version < newer.version);
+
+        mClient.apply(newer);
+        mClient.apply(older);
+
+        assertEquals(1, mChanges.size());
+        assertEquals(newer.version, mClient.getSnapshot().version);
+        assertEquals(500, mClient.getSnapshot().weatherId);
+    }
+
+    @Test
+    public void samePushIsACheckOnly() {
+        WeatherSnapshot snapshot = mServer.publish(800, 21f, 12f, true);
+
+        mClient.apply(snapshot);
+        mClient.apply(snapshot);
+
+        assertEquals(1, mChanges.size());
+        assertEquals(2, mChecks);
+    }
+
+    @Test
+    public void deltaAgainstUnknownBaseKeepsPushedSnapshot() {
+        mServer.publish(800, 21f, 12f, true);
+        WeatherSnapshot previous = mServer.getCurrent();
+        WeatherSnapshot current = mServer.publish(801, 21f, 12f, true);
+        // Newer than anything the phone answers with, e.g. pushed right after a later sync
+        WeatherSnapshot pushed = new WeatherSnapshot(current.version + 5, 500, 18f, 11f, true);
+        mClient.apply(pushed);
+
+        mClient.onResponse(WeatherSyncProtocol.encodeDelta(previous, current));
+
+        // A full snapshot was asked for and the older reply did not replace the pushed one
+        assertEquals(1, mTransport.requests);
+        assertEquals(WeatherSnapshot.EMPTY.version, mTransport.lastSeenVersion);
+        assertEquals(pushed.version, mClient.getSnapshot().version);
+        assertEquals(1, mChanges.size());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.TemperatureFormatter;
+
+import java.text.SimpleDateFormat;
+
+/**
+ * Compares {@link DisplayFormatter} with the Utility formatting it replaced, for output and for
+ * time per call. Each case is warmed up before it is measured, the way a JMH benchmark would.
+ */
+public class DisplayFormatterBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = DisplayFormatterBenchmark.class.getSimpleName();
+
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 20000;
+    private static final int DAYS = 14;
+    // The format_temperature resource Utility.formatTemperature used before
+    private static final String LEGACY_TEMPERATURE_FORMAT = "%1.0f\u00B0";
+
+    private interface Case {
+        int run(int i);
+    }
+
+    // Average ns per call of a case, after a warmup
+    private static long measure(Case benchmark) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += benchmark.run(i);
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += benchmark.run(i);
+        }
+        long ns = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+        return sink == Integer.MIN_VALUE ? -1 : ns;
+    }
+
+    // Utility.getFriendlyDayString as it was
+    private static String legacyFriendlyDayString(Context context, long dateInMillis, boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+        if (displayLongToday && julianDay == currentJulianDay) {
+            return String.format(context.getString(R.string.format_full_friendly_date,
+                    context.getString(R.string.today), new SimpleDateFormat("MMMM dd").format(dateInMillis)));
+        } else if (julianDay == currentJulianDay) {
+            return context.getString(R.string.today);
+        } else if (julianDay == currentJulianDay + 1) {
+            return context.getString(R.string.tomorrow);
+        } else if (julianDay < currentJulianDay + 7) {
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        } else {
+            return new SimpleDateFormat("EEE MMM dd").format(dateInMillis);
+        }
+    }
+
+    // Utility.getFormattedWind as it was, with the direction chain shortened to a lookup
+    private static String legacyFormattedWind(Context context, float windSpeed, float degrees, boolean metric) {
+        int windFormat = metric ? R.string.format_wind_kmh : R.string.format_wind_mph;
+        if (!metric) {
+            windSpeed = .621371192237334f * windSpeed;
+        }
+        String direction = Float.isNaN(degrees) ? "Unknown"
+                : new String[]{"N", "NE", "E", "SE", "S", "SW", "W", "NW", "N"}[(int) ((degrees + 22.5) / 45) % 9];
+        return String.format(context.getString(windFormat), windSpeed, direction);
+    }
+
+    // Utility.formatTemperature as it was
+    private static String legacyTemperature(Context context, double temperature, boolean metric) {
+        if (!metric) {
+            temperature = (temperature * 1.8) + 32;
+        }
+        return String.format(LEGACY_TEMPERATURE_FORMAT, temperature);
+    }
+
+    private static long day(int i) {
+        return System.currentTimeMillis() + (i % DAYS) * DateUtils.DAY_IN_MILLIS;
+    }
+
+    public void testMatchesLegacyFormatting() {
+        DisplayFormatter formatter = DisplayFormatter.get(getContext());
+        for (int i = 0; i < DAYS; i++) {
+            assertEquals(legacyFriendlyDayString(getContext(), day(i), true),
+                    formatter.getFriendlyDayString(day(i), true));
+            assertEquals(legacyFriendlyDayString(getContext(), day(i), false),
+                    formatter.getFriendlyDayString(day(i), false));
+        }
+        for (int degrees = 0; degrees < 360; degrees += 5) {
+            assertEquals(legacyFormattedWind(getContext(), degrees / 10f, degrees, true),
+                    formatter.formatWind(degrees / 10f, degrees, true));
+            assertEquals(legacyFormattedWind(getContext(), degrees / 10f, degrees, false),
+                    formatter.formatWind(degrees / 10f, degrees, false));
+        }
+    }
+
+    public void testTemperature() {
+        final Context context = getContext();
+        final StringBuilder builder = new StringBuilder();
+        long legacyNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                return legacyTemperature(context, i % 40, true).length();
+            }
+        });
+        long formatNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                return Utility.formatTemperature(context, i % 40).length();
+            }
+        });
+        long appendNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                builder.setLength(0);
+                return TemperatureFormatter.append(builder, i % 40, true).length();
+            }
+        });
+        Log.d(LOG_TAG, "temperature: legacy " + legacyNs + "ns, format " + formatNs + "ns, append "
+                + appendNs + "ns per call");
+    }
+
+    public void testFriendlyDay() {
+        final Context context = getContext();
+        long legacyNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                return legacyFriendlyDayString(context, day(i), i % DAYS == 0).length();
+            }
+        });
+        long cachedNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                return Utility.getFriendlyDayString(context, day(i), i % DAYS == 0).length();
+            }
+        });
+        Log.d(LOG_TAG, "friendly day: legacy " + legacyNs + "ns, cached " + cachedNs + "ns per call");
+    }
+
+    public void testWind() {
+        final Context context = getContext();
+        final DisplayFormatter formatter = DisplayFormatter.get(context);
+        final StringBuilder builder = new StringBuilder();
+        long legacyNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                return legacyFormattedWind(context, i % 50, i % 360, true).length();
+            }
+        });
+        long formatNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                return Utility.getFormattedWind(context, i % 50, i % 360).length();
+            }
+        });
+        long appendNs = measure(new Case() {
+            @Override
+            public int run(int i) {
+                builder.setLength(0);
+                return formatter.appendWind(builder, i % 50, i % 360, true).length();
+            }
+        });
+        Log.d(LOG_TAG, "wind: legacy " + legacyNs + "ns, format " + formatNs + "ns, append "
+                + appendNs + "ns per call");
+    }
+}
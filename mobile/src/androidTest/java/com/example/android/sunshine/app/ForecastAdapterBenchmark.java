@@ -0,0 +1,211 @@
+package com.example.android.sunshine.app;
+
+import android.database.MatrixCursor;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.test.AndroidTestCase;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.view.View;
+import android.widget.AbsListView;
+
+/**
+ * Counts the rows {@link ForecastAdapter} asks RecyclerView to rebind when a sync delivers a new
+ * forecast, and times the diff and the binding of 14 and 365 day forecasts, including the
+ * formatting a bind did before the snapshot carried its display strings.
+ */
+public class ForecastAdapterBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = ForecastAdapterBenchmark.class.getSimpleName();
+
+    private static final long FIRST_DAY = 1451606400000L;
+    private static final int ITERATIONS = 200;
+    private static final int[] FORECAST_SIZES = {14, 365};
+
+    private ForecastAdapter mAdapter;
+    private int mReboundRows;
+    private boolean mFullRebind;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mAdapter = new ForecastAdapter(getContext(), null, new View(getContext()), AbsListView.CHOICE_MODE_NONE);
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mFullRebind = true;
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                mReboundRows += itemCount;
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mReboundRows += itemCount;
+            }
+        });
+    }
+
+    private static MatrixCursor createForecast(int firstDay, int days, double warming) {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"_id", "date", "short_desc", "max", "min",
+                "location_setting", "weather_id", "coord_lat", "coord_long"});
+        for (int i = 0; i < days; i++) {
+            int day = firstDay + i;
+            cursor.addRow(new Object[]{day, FIRST_DAY + day * DateUtils.DAY_IN_MILLIS, "Clear",
+                    20 + (day % 5) + warming, 10 + (day % 3), "94043", 800, 37.4, -122.1});
+        }
+        return cursor;
+    }
+
+    private ForecastSnapshot load(int firstDay, int days, double warming, ForecastSnapshot base) {
+        MatrixCursor cursor = createForecast(firstDay, days, warming);
+        try {
+            return ForecastSnapshot.fromCursor(getContext(), cursor, base, 0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void deliver(int firstDay, int days) {
+        mReboundRows = 0;
+        mFullRebind = false;
+        mAdapter.swapSnapshot(load(firstDay, days, 0, mAdapter.getSnapshot()));
+    }
+
+    public void testSyncWithoutChangesRebindsNothing() {
+        deliver(0, 14);
+        assertTrue(mFullRebind);
+
+        deliver(0, 14);
+        assertFalse(mFullRebind);
+        assertEquals(0, mReboundRows);
+    }
+
+    public void testSyncRebindsOnlyChangedRows() {
+        deliver(0, 14);
+        // Next day the first row is gone, a new one is appended and nothing else moved
+        deliver(1, 14);
+        assertFalse(mFullRebind);
+        // The new last row, plus the two rows swapping the "today" layout
+        assertEquals(3, mReboundRows);
+    }
+
+    public void testPositionOfDate() {
+        ForecastSnapshot snapshot = load(0, 365, 0, null);
+        for (int day = 0; day < 365; day++) {
+            assertEquals(day, snapshot.positionOf(FIRST_DAY + day * DateUtils.DAY_IN_MILLIS));
+        }
+        assertEquals(-1, snapshot.positionOf(FIRST_DAY - DateUtils.DAY_IN_MILLIS));
+    }
+
+    public void testDiffCost() {
+        for (int days : FORECAST_SIZES) {
+            ForecastSnapshot base = load(0, days, 0, null);
+            MatrixCursor next = createForecast(1, days, 0.5);
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ForecastSnapshot.fromCursor(getContext(), next, base, 0);
+            }
+            long perLoadUs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / 1000;
+            Log.d(LOG_TAG, days + " rows: " + perLoadUs + "us per snapshot and diff, off the main thread");
+            next.close();
+        }
+    }
+
+    // Row data reads of a bind, from the cursor as before and from the snapshot
+    public void testRowReadCost() {
+        for (int days : FORECAST_SIZES) {
+            MatrixCursor cursor = createForecast(0, days, 0);
+            ForecastSnapshot snapshot = load(0, days, 0, null);
+            double sink = 0;
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (int position = 0; position < days; position++) {
+                    cursor.moveToPosition(position);
+                    sink += cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID)
+                            + cursor.getLong(ForecastFragment.COL_WEATHER_DATE)
+                            + cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP)
+                            + cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+                }
+            }
+            long cursorNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / days;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (int position = 0; position < days; position++) {
+                    sink += snapshot.getWeatherId(position) + snapshot.getDate(position)
+                            + snapshot.getHigh(position) + snapshot.getLow(position);
+                }
+            }
+            long snapshotNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / days;
+
+            Log.d(LOG_TAG, days + " rows: cursor " + cursorNs + "ns, snapshot " + snapshotNs
+                    + "ns per row read (" + sink + ")");
+            cursor.close();
+        }
+    }
+
+    public void testUnchangedRowsReuseStrings() {
+        ForecastSnapshot base = load(0, 14, 0, null);
+        ForecastSnapshot next = load(1, 14, 0, base);
+        for (int position = 0; position < 13; position++) {
+            assertSame(base.getHighLabel(position + 1), next.getHighLabel(position));
+            assertSame(base.getDescription(position + 1), next.getDescription(position));
+        }
+    }
+
+    // The formatting each bind did before, against reading what the snapshot prepared
+    public void testBindWorkCost() {
+        for (int days : FORECAST_SIZES) {
+            ForecastSnapshot snapshot = load(0, days, 0, null);
+            int sink = 0;
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int position = 0; position < days; position++) {
+                int weatherId = snapshot.getWeatherId(position);
+                String description = Utility.getStringForWeatherCondition(getContext(), weatherId);
+                String high = Utility.formatTemperature(getContext(), snapshot.getHigh(position));
+                String low = Utility.formatTemperature(getContext(), snapshot.getLow(position));
+                sink += Utility.getFriendlyDayString(getContext(), snapshot.getDate(position), false).length()
+                        + getContext().getString(R.string.a11y_forecast, description).length()
+                        + getContext().getString(R.string.a11y_high_temp, high).length()
+                        + getContext().getString(R.string.a11y_low_temp, low).length();
+            }
+            long formatNs = (SystemClock.elapsedRealtimeNanos() - start) / days;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                for (int position = 0; position < days; position++) {
+                    sink += snapshot.getDateLabel(position, false).length()
+                            + snapshot.getDescriptionContentDescription(position).length()
+                            + snapshot.getHighContentDescription(position).length()
+                            + snapshot.getLowContentDescription(position).length();
+                }
+            }
+            long preparedNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / days;
+
+            Log.d(LOG_TAG, days + " rows: formatting " + formatNs + "ns, prepared " + preparedNs
+                    + "ns per bind (" + sink + ")");
+        }
+    }
+
+    public void testBindCost() {
+        RecyclerView parent = new RecyclerView(getContext());
+        parent.setLayoutManager(new LinearLayoutManager(getContext()));
+        for (int days : FORECAST_SIZES) {
+            mAdapter.swapSnapshot(load(0, days, 0, null));
+            ForecastAdapter.ForecastAdapterViewHolder holder =
+                    mAdapter.onCreateViewHolder(parent, mAdapter.getItemViewType(1));
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int position = 1; position < days; position++) {
+                mAdapter.onBindViewHolder(holder, position);
+            }
+            long perBindUs = (SystemClock.elapsedRealtimeNanos() - start) / (days - 1) / 1000;
+            Log.d(LOG_TAG, days + " rows: " + perBindUs + "us per bind");
+        }
+    }
+}
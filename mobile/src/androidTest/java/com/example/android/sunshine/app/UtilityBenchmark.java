@@ -0,0 +1,54 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.TemperatureFormatter;
+
+/**
+ * Times {@link Utility#formatTemperature} reading the units from {@link SettingsSnapshot}, against
+ * reading them from the shared preferences on every call as it did before.
+ */
+public class UtilityBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = UtilityBenchmark.class.getSimpleName();
+
+    private static final int ITERATIONS = 20000;
+
+    // formatTemperature as it was, with a preference lookup and three resource strings per call
+    private static String formatTemperatureFromPreferences(Context context, double temperature) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean metric = prefs.getString(context.getString(R.string.pref_units_key),
+                context.getString(R.string.pref_units_metric))
+                .equals(context.getString(R.string.pref_units_metric));
+        return TemperatureFormatter.format(temperature, metric);
+    }
+
+    public void testSnapshotMatchesPreferences() {
+        assertEquals(formatTemperatureFromPreferences(getContext(), 21.4),
+                Utility.formatTemperature(getContext(), 21.4));
+    }
+
+    public void testFormatTemperatureThroughput() {
+        int sink = 0;
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += formatTemperatureFromPreferences(getContext(), i % 40).length();
+        }
+        long preferencesNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += Utility.formatTemperature(getContext(), i % 40).length();
+        }
+        long snapshotNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        Log.d(LOG_TAG, "formatTemperature: preferences " + preferencesNs + "ns, snapshot " + snapshotNs
+                + "ns per call (" + sink + ")");
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.android.sunshine.app;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.WeatherConditions;
+
+/**
+ * Checks the condition strings line up with {@link WeatherConditions#DESCRIPTION_CODES} and times
+ * the table lookups of every code against the range checks they replaced.
+ */
+public class WeatherConditionsBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = WeatherConditionsBenchmark.class.getSimpleName();
+
+    private static final int ITERATIONS = 200;
+
+    // Utility.getArtResourceForWeatherCondition as it was
+    private static int legacyArtResource(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return R.drawable.art_storm;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return R.drawable.art_light_rain;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return R.drawable.art_rain;
+        } else if (weatherId == 511) {
+            return R.drawable.art_snow;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return R.drawable.art_rain;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return R.drawable.art_snow;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return R.drawable.art_fog;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return R.drawable.art_storm;
+        } else if (weatherId == 800) {
+            return R.drawable.art_clear;
+        } else if (weatherId == 801) {
+            return R.drawable.art_light_clouds;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return R.drawable.art_clouds;
+        }
+        return -1;
+    }
+
+    public void testEveryDescriptionHasItsString() {
+        for (int code : WeatherConditions.DESCRIPTION_CODES) {
+            String description = Utility.getStringForWeatherCondition(getContext(), code);
+            assertFalse(String.valueOf(code), description.equals(
+                    getContext().getString(R.string.condition_unknown, code)));
+        }
+        assertEquals(getContext().getString(R.string.condition_800),
+                Utility.getStringForWeatherCondition(getContext(), 800));
+    }
+
+    public void testArtMatchesLegacyLookup() {
+        for (int code = 0; code < 1000; code++) {
+            assertEquals(String.valueOf(code), legacyArtResource(code),
+                    Utility.getArtResourceForWeatherCondition(code));
+        }
+    }
+
+    public void testLookupCost() {
+        int sink = 0;
+        int codes = WeatherConditions.LAST_CODE - WeatherConditions.FIRST_CODE + 1;
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int code = WeatherConditions.FIRST_CODE; code <= WeatherConditions.LAST_CODE; code++) {
+                sink += legacyArtResource(code);
+            }
+        }
+        long chainNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / codes;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int code = WeatherConditions.FIRST_CODE; code <= WeatherConditions.LAST_CODE; code++) {
+                sink += Utility.getArtResourceForWeatherCondition(code);
+            }
+        }
+        long tableNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / codes;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int code = WeatherConditions.FIRST_CODE; code <= WeatherConditions.LAST_CODE; code++) {
+                sink += Utility.getStringForWeatherCondition(getContext(), code).length();
+            }
+        }
+        long stringNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / codes;
+
+        Log.d(LOG_TAG, "art: chain " + chainNs + "ns, table " + tableNs + "ns; description "
+                + stringNs + "ns per code (" + sink + ")");
+    }
+}
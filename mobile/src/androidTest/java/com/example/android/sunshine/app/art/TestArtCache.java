@@ -0,0 +1,86 @@
+package com.example.android.sunshine.app.art;
+
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.common.WeatherConditions;
+import com.example.android.sunshine.app.utils.LocalImageServer;
+import com.example.android.sunshine.app.utils.PollingCheck;
+
+/**
+ * Prefetches an art pack served by a local HTTP stand-in, then renders every condition the way
+ * the list, the widgets and the notification do and checks none of that reaches the network.
+ * <p/>
+ * No sync is run, it would need the weather server. The test calls {@link ArtCache#prefetch()}
+ * directly, the same call the sync makes after storing the forecast.
+ */
+public class TestArtCache extends AndroidTestCase {
+
+    private LocalImageServer mServer;
+    private String mPreviousArtPack;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mServer = new LocalImageServer(256);
+        // A pack of its own, so nothing cached by earlier runs is found
+        setArtPack(mServer.getUrl() + "/" + System.nanoTime() + "/art_%s.png");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        setArtPack(mPreviousArtPack);
+        mServer.close();
+        super.tearDown();
+    }
+
+    private void setArtPack(final String artPack) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        String key = getContext().getString(R.string.pref_art_pack_key);
+        if (mPreviousArtPack == null) {
+            mPreviousArtPack = prefs.getString(key, getContext().getString(R.string.pref_art_pack_sunshine));
+        }
+        prefs.edit().putString(key, artPack).commit();
+        // The snapshot is replaced on the main thread
+        new PollingCheck(5000) {
+            @Override
+            protected boolean check() {
+                return SettingsSnapshot.get(getContext()).artPack.equals(artPack);
+            }
+        }.run();
+    }
+
+    private void render(ArtCache cache) {
+        for (int code = WeatherConditions.FIRST_CODE; code <= WeatherConditions.LAST_CODE; code++) {
+            if (WeatherConditions.getArt(code) == WeatherConditions.ART_NONE) {
+                continue;
+            }
+            // Forecast list and detail view
+            assertTrue(cache.getArtUrl(code).startsWith("file:"));
+            // Detail widget and notification
+            assertNotNull(cache.getBitmap(code, 0, 0));
+            Bitmap icon = cache.getBitmap(code, 64, 64);
+            assertTrue(icon.getWidth() <= 64 && icon.getHeight() <= 64);
+        }
+    }
+
+    public void testNoNetworkLoadsAfterWarmUp() {
+        ArtCache cache = ArtCache.get(getContext());
+        assertFalse(cache.isComplete());
+
+        assertEquals(WeatherConditions.ART_COUNT, cache.prefetch());
+        assertTrue(cache.isComplete());
+        assertEquals(WeatherConditions.ART_COUNT, mServer.getRequestCount());
+
+        render(cache);
+        // Prefetching again, as every later sync does, downloads nothing and every surface renders
+        // again
+        assertEquals(0, cache.prefetch());
+        render(cache);
+        assertEquals(WeatherConditions.ART_COUNT, mServer.getRequestCount());
+    }
+}
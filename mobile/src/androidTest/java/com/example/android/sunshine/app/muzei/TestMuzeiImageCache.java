@@ -0,0 +1,120 @@
+package com.example.android.sunshine.app.muzei;
+
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.utils.LocalImageServer;
+import com.google.android.apps.muzei.api.Artwork;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Caches a photo served by a local HTTP stand-in the way the Muzei source does on every sync, and
+ * checks it is downloaded once, scaled down to cover the screen and readable through
+ * {@link WeatherImageProvider}.
+ */
+public class TestMuzeiImageCache extends AndroidTestCase {
+
+    private static final int IMAGE_SIZE = 1024;
+    private static final int SCREEN_SIZE = 256;
+    private static final String LOCATION = "94043";
+
+    private LocalImageServer mServer;
+    private String mImageUrl;
+    private MuzeiImageCache mCache;
+    private File mImage;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mServer = new LocalImageServer(IMAGE_SIZE);
+        // A url of its own, so nothing cached by earlier runs is found
+        mImageUrl = mServer.getUrl() + "/" + System.nanoTime() + ".png";
+        mCache = new MuzeiImageCache(getContext(), SCREEN_SIZE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mImage != null && !mImage.delete()) {
+            fail("Could not delete " + mImage);
+        }
+        mServer.close();
+        super.tearDown();
+    }
+
+    public void testDownloadedOnceAndScaledDown() throws Exception {
+        mImage = mCache.get(mImageUrl);
+        assertNotNull(mImage);
+        assertEquals(1, mServer.getRequestCount());
+
+        // Later syncs with the same condition class
+        for (int i = 0; i < 5; i++) {
+            assertEquals(mImage, mCache.get(mImageUrl));
+        }
+        assertEquals(1, mServer.getRequestCount());
+
+        BitmapFactory.Options options = readBounds(mImage);
+        assertEquals(SCREEN_SIZE, options.outWidth);
+        assertEquals(SCREEN_SIZE, options.outHeight);
+    }
+
+    public void testWidePhotoStillCoversTheScreen() throws Exception {
+        mServer.close();
+        mServer = new LocalImageServer(IMAGE_SIZE, IMAGE_SIZE / 2);
+        mImageUrl = mServer.getUrl() + "/" + System.nanoTime() + ".png";
+
+        mImage = mCache.get(mImageUrl);
+        assertNotNull(mImage);
+
+        // The shorter side covers the screen, the aspect ratio is kept for Muzei to crop
+        BitmapFactory.Options options = readBounds(mImage);
+        assertEquals(SCREEN_SIZE, options.outHeight);
+        assertEquals(2 * SCREEN_SIZE, options.outWidth);
+    }
+
+    public void testProviderOnlyServesTheCache() throws Exception {
+        String[] paths = {"..%2Fshared_prefs%2Fmuzei_images.xml", "%2Fproc%2Fself%2Fenviron", "..%2F"};
+        for (String path : paths) {
+            Uri uri = Uri.parse("content://" + WeatherImageProvider.AUTHORITY + "/" + path);
+            try {
+                getContext().getContentResolver().openInputStream(uri).close();
+                fail("Opened " + uri);
+            } catch (FileNotFoundException expected) {
+            }
+        }
+    }
+
+    // Size of the image as Muzei reads it
+    private BitmapFactory.Options readBounds(File image) throws Exception {
+        InputStream in = getContext().getContentResolver()
+                .openInputStream(WeatherImageProvider.buildImageUri(image));
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try {
+            BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            in.close();
+        }
+        return options;
+    }
+
+    public void testPublishesOnlyOnChange() {
+        mImage = mCache.get(mImageUrl);
+        Uri imageUri = WeatherImageProvider.buildImageUri(mImage);
+        assertFalse(WeatherMuzeiSource.isPublished(null, imageUri, LOCATION));
+
+        Artwork current = new Artwork.Builder().imageUri(imageUri).byline(LOCATION).build();
+        assertTrue(WeatherMuzeiSource.isPublished(current, imageUri, LOCATION));
+        assertFalse(WeatherMuzeiSource.isPublished(current, imageUri, "10001"));
+        assertFalse(WeatherMuzeiSource.isPublished(current, Uri.parse(mImageUrl), LOCATION));
+
+        int avoided = mCache.getAvoidedPublishes();
+        long saved = mCache.getBytesSaved();
+        mCache.recordAvoidedPublish(mImage);
+        assertEquals(avoided + 1, mCache.getAvoidedPublishes());
+        assertEquals(saved + mServer.getImageBytes(), mCache.getBytesSaved());
+    }
+}
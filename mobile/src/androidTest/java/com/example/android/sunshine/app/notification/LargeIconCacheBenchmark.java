@@ -0,0 +1,71 @@
+package com.example.android.sunshine.app.notification;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.WeatherConditionResources;
+import com.example.android.sunshine.app.common.WeatherConditions;
+
+/**
+ * Times getting the notification large icon from {@link LargeIconCache} against decoding the art
+ * on every notification as the sync and the GCM alerts did, without the network wait the sync
+ * also had when the art pack was not prefetched.
+ */
+public class LargeIconCacheBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = LargeIconCacheBenchmark.class.getSimpleName();
+
+    private static final int ITERATIONS = 50;
+
+    // Any condition of every art
+    private static final int[] WEATHER_IDS = {200, 300, 500, 600, 701, 800, 801, 802};
+
+    public void testIconsFitTheLargeIconSize() {
+        int width = getContext().getResources().getDimensionPixelSize(
+                android.R.dimen.notification_large_icon_width);
+        int height = getContext().getResources().getDimensionPixelSize(
+                android.R.dimen.notification_large_icon_height);
+        LargeIconCache cache = LargeIconCache.get(getContext());
+        for (int weatherId : WEATHER_IDS) {
+            Bitmap icon = cache.getIcon(weatherId);
+            assertNotNull(icon);
+            assertTrue(icon.getWidth() <= width && icon.getHeight() <= height);
+            assertSame(icon, cache.getIcon(weatherId));
+        }
+        assertNull(cache.getIcon(-1));
+    }
+
+    public void testLargeIconCost() {
+        int sink = 0;
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int art = WeatherConditions.getArt(WEATHER_IDS[i % WEATHER_IDS.length]);
+            Bitmap icon = BitmapFactory.decodeResource(getContext().getResources(),
+                    WeatherConditionResources.getResourceOfArt(art));
+            sink += icon.getWidth();
+            icon.recycle();
+        }
+        long decodeUs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / 1000;
+
+        LargeIconCache cache = LargeIconCache.get(getContext());
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += cache.getIcon(WEATHER_IDS[i % WEATHER_IDS.length]).getWidth();
+        }
+        long cachedUs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / 1000;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += WeatherNotifications.buildForecast(getContext(),
+                    WEATHER_IDS[i % WEATHER_IDS.length], 21, 12, "Clear").when > 0 ? 1 : 0;
+        }
+        long buildUs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS / 1000;
+
+        Log.d(LOG_TAG, "Large icon: decoded " + decodeUs + "us, cached " + cachedUs
+                + "us; whole notification " + buildUs + "us (" + sink + ")");
+    }
+}
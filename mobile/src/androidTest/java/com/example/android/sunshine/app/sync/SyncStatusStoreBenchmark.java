@@ -0,0 +1,72 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.io.File;
+
+/**
+ * Times a status write to {@link SyncStatusStore} against the shared preferences commit() the
+ * sync used for each status before.
+ */
+public class SyncStatusStoreBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = SyncStatusStoreBenchmark.class.getSimpleName();
+
+    private static final int ITERATIONS = 200;
+    private static final String PREFS_NAME = "sync_status_benchmark";
+
+    private File mFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // A file of its own, so the app's status is left alone
+        mFile = new File(getContext().getCacheDir(), "sync_status_test");
+        mFile.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().commit();
+        super.tearDown();
+    }
+
+    public void testValuesOutliveTheInstance() {
+        SyncStatusStore store = new SyncStatusStore(getContext(), mFile);
+        store.setLocationStatus(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN);
+        store.setLastNotificationTime(1419033600000L);
+        store.recordSync(1419037200000L, 850, 14);
+
+        SyncStatusStore reopened = new SyncStatusStore(getContext(), mFile);
+        assertEquals(SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN, reopened.getLocationStatus());
+        assertEquals(1419033600000L, reopened.getLastNotificationTime());
+        assertEquals(1419037200000L, reopened.getLastSyncTime());
+        assertEquals(850, reopened.getLastSyncDuration());
+        assertEquals(14, reopened.getLastSyncInserted());
+    }
+
+    public void testStatusWriteLatency() {
+        SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            prefs.edit().putInt("loc-status", i % 5).commit();
+        }
+        long commitNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        SyncStatusStore store = new SyncStatusStore(getContext(), mFile);
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Alternate, an unchanged status is not written at all
+            store.setLocationStatus(i % 2 == 0 ? SunshineSyncAdapter.LOCATION_STATUS_OK
+                    : SunshineSyncAdapter.LOCATION_STATUS_SERVER_DOWN);
+        }
+        long storeNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        Log.d(LOG_TAG, "Status write: commit() " + commitNs + "ns, store " + storeNs + "ns");
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.android.sunshine.app.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP stand-in on the loopback interface that answers every request with the same PNG and
+ * counts the requests.
+ */
+public class LocalImageServer {
+
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final ServerSocket mServer;
+    private final byte[] mImage;
+
+    public LocalImageServer(int size) throws IOException {
+        this(size, size);
+    }
+
+    public LocalImageServer(int width, int height) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.BLUE);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.PNG, 100, png);
+        bitmap.recycle();
+        mImage = png.toByteArray();
+
+        mServer = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        Thread serverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    // Url of the server, images can be requested at any path below it
+    public String getUrl() {
+        return "http://127.0.0.1:" + mServer.getLocalPort();
+    }
+
+    public int getRequestCount() {
+        return mRequests.get();
+    }
+
+    public int getImageBytes() {
+        return mImage.length;
+    }
+
+    public void close() throws IOException {
+        mServer.close();
+    }
+
+    private void serve() {
+        while (!mServer.isClosed()) {
+            try {
+                Socket socket = mServer.accept();
+                try {
+                    InputStream in = socket.getInputStream();
+                    // Read the request head up to the empty line
+                    int matched = 0;
+                    int c;
+                    while (matched < 4 && (c = in.read()) != -1) {
+                        matched = (c == '\r' || c == '\n') ? matched + 1 : 0;
+                    }
+                    mRequests.incrementAndGet();
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: image/png\r\nContent-Length: "
+                            + mImage.length + "\r\nConnection: close\r\n\r\n").getBytes("US-ASCII"));
+                    out.write(mImage);
+                    out.flush();
+                } finally {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // Closed by close()
+            }
+        }
+    }
+}
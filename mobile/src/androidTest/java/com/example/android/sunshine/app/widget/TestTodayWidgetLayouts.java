@@ -0,0 +1,105 @@
+package com.example.android.sunshine.app.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.util.TypedValue;
+import android.widget.RemoteViews;
+
+import com.example.android.sunshine.app.R;
+
+/**
+ * Chooses the layouts of 20 Today widgets of different widths, then updates them again the way a
+ * launcher that keeps asking for updates would.
+ */
+public class TestTodayWidgetLayouts extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestTodayWidgetLayouts.class.getSimpleName();
+
+    private static final int WIDGETS = 20;
+    private static final int ROUNDS = 500;
+
+    // Widths the launcher reports, in dp, around the default (110dp) and large (220dp) widths.
+    // Which side of a boundary a width lands on depends on the density, so the expected layouts
+    // go through the same dp to pixel conversion as the widget
+    private static final int[] WIDTHS_DP = {40, 109, 110, 180, 219, 220, 400};
+
+    private TodayWidgetLayouts mLayouts;
+    private int[] mExpected;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mLayouts = new TodayWidgetLayouts(getContext());
+        mExpected = new int[WIDGETS];
+        for (int appWidgetId = 0; appWidgetId < WIDGETS; appWidgetId++) {
+            int widthDp = WIDTHS_DP[appWidgetId % WIDTHS_DP.length];
+            mExpected[appWidgetId] = mLayouts.getLayoutForWidth((int) TypedValue.applyDimension(
+                    TypedValue.COMPLEX_UNIT_DIP, widthDp, getContext().getResources().getDisplayMetrics()));
+            mLayouts.onOptionsChanged(appWidgetId, options(widthDp));
+        }
+    }
+
+    private static Bundle options(int minWidthDp) {
+        Bundle options = new Bundle();
+        options.putInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH, minWidthDp);
+        return options;
+    }
+
+    public void testLayoutsAreKeptPerWidget() {
+        for (int appWidgetId = 0; appWidgetId < WIDGETS; appWidgetId++) {
+            // No AppWidgetManager, the options must not be read again
+            assertEquals("Layout of widget " + appWidgetId,
+                    mExpected[appWidgetId], mLayouts.getLayout(null, appWidgetId));
+        }
+
+        // Resizing one widget changes only its layout
+        mLayouts.onOptionsChanged(3, options(40));
+        assertEquals(R.layout.widget_today_small, mLayouts.getLayout(null, 3));
+        assertEquals(mExpected[4], mLayouts.getLayout(null, 4));
+    }
+
+    public void testNewViewsAreCopies() {
+        for (int appWidgetId = 0; appWidgetId < WIDGETS; appWidgetId++) {
+            int layoutId = mLayouts.getLayout(null, appWidgetId);
+            RemoteViews first = mLayouts.newViews(layoutId);
+            RemoteViews second = mLayouts.newViews(layoutId);
+            assertNotSame(first, second);
+            assertEquals(layoutId, first.getLayoutId());
+            first.setTextViewText(R.id.widget_description, "Clear");
+            assertEquals(layoutId, second.getLayoutId());
+        }
+    }
+
+    public void testUpdateRoundCost() {
+        int sink = 0;
+
+        // As every update did before: read the dimensions, choose and inflate a new RemoteViews
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int appWidgetId = 0; appWidgetId < WIDGETS; appWidgetId++) {
+                int widthDp = WIDTHS_DP[appWidgetId % WIDTHS_DP.length];
+                int width = (int) (widthDp * getContext().getResources().getDisplayMetrics().density);
+                int layoutId = width >= getContext().getResources().getDimensionPixelSize(R.dimen.widget_today_large_width)
+                        ? R.layout.widget_today_large
+                        : width >= getContext().getResources().getDimensionPixelSize(R.dimen.widget_today_default_width)
+                        ? R.layout.widget_today : R.layout.widget_today_small;
+                sink += new RemoteViews(getContext().getPackageName(), layoutId).getLayoutId();
+            }
+        }
+        long resolvingNs = (SystemClock.elapsedRealtimeNanos() - start) / (ROUNDS * WIDGETS);
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int appWidgetId = 0; appWidgetId < WIDGETS; appWidgetId++) {
+                sink += mLayouts.newViews(mLayouts.getLayout(null, appWidgetId)).getLayoutId();
+            }
+        }
+        long cachedNs = (SystemClock.elapsedRealtimeNanos() - start) / (ROUNDS * WIDGETS);
+
+        Log.d(LOG_TAG, "Layout per widget update: resolved " + resolvingNs + "ns, cached " + cachedNs
+                + "ns (" + sink + ")");
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Refreshes detail widgets of two locations the way a sync does, and checks each location is read
+ * from the provider once however many widgets show it.
+ */
+public class TestWidgetForecasts extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestWidgetForecasts.class.getSimpleName();
+
+    private static final int WIDGETS_PER_LOCATION = 10;
+    private static final int DAYS = 14;
+
+    private String mFirstLocation;
+    private String mSecondLocation;
+    private long mFirstId;
+    private long mSecondId;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Locations of their own, so stored forecasts are not mixed in
+        long suffix = System.nanoTime();
+        mFirstLocation = "widget-test-a-" + suffix;
+        mSecondLocation = "widget-test-b-" + suffix;
+        mFirstId = insertLocation(mFirstLocation);
+        mSecondId = insertLocation(mSecondLocation);
+        insertForecast(mFirstId);
+        insertForecast(mSecondId);
+        WidgetForecasts.invalidate();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (long locationId : new long[]{mFirstId, mSecondId}) {
+            getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
+                    WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ?",
+                    new String[]{Long.toString(locationId)});
+            getContext().getContentResolver().delete(WeatherContract.LocationEntry.CONTENT_URI,
+                    WeatherContract.LocationEntry._ID + " = ?",
+                    new String[]{Long.toString(locationId)});
+        }
+        WidgetForecasts.invalidate();
+        super.tearDown();
+    }
+
+    private long insertLocation(String location) {
+        ContentValues values = new ContentValues();
+        values.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, location);
+        values.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, location);
+        values.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 64.7488);
+        values.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -147.353);
+        return ContentUris.parseId(getContext().getContentResolver()
+                .insert(WeatherContract.LocationEntry.CONTENT_URI, values));
+    }
+
+    private void insertForecast(long locationId) {
+        Time dayTime = new Time();
+        dayTime.setToNow();
+        int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
+        dayTime = new Time();
+        ContentValues[] days = new ContentValues[DAYS];
+        for (int i = 0; i < DAYS; i++) {
+            ContentValues values = new ContentValues();
+            values.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+            values.put(WeatherContract.WeatherEntry.COLUMN_DATE, dayTime.setJulianDay(julianStartDay + i));
+            values.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, 1.1);
+            values.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, 1.2);
+            values.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, 1.3);
+            values.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 20 + i);
+            values.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 10 + i);
+            values.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            values.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, 5.5);
+            values.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 800);
+            days[i] = values;
+        }
+        getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, days);
+    }
+
+    // What the factories of all widgets do when they are told the data changed
+    private void refreshWidgets() {
+        for (int i = 0; i < WIDGETS_PER_LOCATION; i++) {
+            assertEquals(DAYS, WidgetForecasts.get(getContext(), mFirstLocation).count);
+            assertEquals(DAYS, WidgetForecasts.get(getContext(), mSecondLocation).count);
+        }
+    }
+
+    public void testOneReadPerLocationAndSync() {
+        int reads = WidgetForecasts.getReadCount();
+        long start = SystemClock.elapsedRealtimeNanos();
+        refreshWidgets();
+        long refreshNs = SystemClock.elapsedRealtimeNanos() - start;
+        assertEquals(2, WidgetForecasts.getReadCount() - reads);
+
+        WidgetForecasts.Forecast forecast = WidgetForecasts.get(getContext(), mFirstLocation);
+        assertEquals(mFirstLocation, forecast.location);
+        assertEquals(20.0, forecast.highs[0]);
+        assertEquals(10.0 + DAYS - 1, forecast.lows[DAYS - 1]);
+
+        // The next sync stores new forecasts
+        WidgetForecasts.invalidate();
+        refreshWidgets();
+        assertEquals(4, WidgetForecasts.getReadCount() - reads);
+
+        Log.d(LOG_TAG, "Refreshing " + 2 * WIDGETS_PER_LOCATION + " widgets took " + refreshNs / 1000
+                + "us with 2 reads");
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.common.DayStringCache;
+import com.example.android.sunshine.app.common.FormatTemplate;
+import com.example.android.sunshine.app.common.WindFormatter;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Date and wind formatting behind the Utility helpers, for one locale. The resource formats are
+ * split once, the date formats are created once, and date labels are cached per julian day until
+ * the day or the time zone changes, so the forecast list, widgets and sync mostly get a cached
+ * string back instead of new Time, Date and SimpleDateFormat instances per call.
+ * <p/>
+ * Safe to use from the widget and sync threads, formatting is done under the instance lock.
+ */
+public final class DisplayFormatter {
+
+    private static final long ZONE_CHECK_INTERVAL_MS = DateUtils.MINUTE_IN_MILLIS;
+    private static final int CACHED_DAYS = 32;
+
+    private static volatile DisplayFormatter sInstance;
+
+    private final Locale mLocale;
+    private final String mToday;
+    private final String mTomorrow;
+    private final String mFullFriendlyDateFormat;
+    private final String mWindKmhFormat;
+    private final String mWindMphFormat;
+    // Null when the resource of this locale can not be filled by appending
+    private final FormatTemplate mFullFriendlyDate;
+    private final FormatTemplate mWindKmh;
+    private final FormatTemplate mWindMph;
+
+    private final SimpleDateFormat mDayNameFormat;
+    private final SimpleDateFormat mMonthDayFormat;
+    private final SimpleDateFormat mShortDateFormat;
+
+    private final DayStringCache mFriendlyDays = new DayStringCache(CACHED_DAYS);
+    private final DayStringCache mFullFriendlyDays = new DayStringCache(CACHED_DAYS);
+    private final DayStringCache mDayNames = new DayStringCache(CACHED_DAYS);
+    private final DayStringCache mMonthDays = new DayStringCache(CACHED_DAYS);
+
+    // Guarded by this
+    private final StringBuilder mBuilder = new StringBuilder(32);
+    private TimeZone mZone;
+    private long mZoneCheckedAt;
+    private int mCurrentJulianDay;
+    private String mTodayLongLabel;
+
+    private DisplayFormatter(Context context, Locale locale) {
+        mLocale = locale;
+        mToday = context.getString(R.string.today);
+        mTomorrow = context.getString(R.string.tomorrow);
+        mFullFriendlyDateFormat = context.getString(R.string.format_full_friendly_date);
+        mWindKmhFormat = context.getString(R.string.format_wind_kmh);
+        mWindMphFormat = context.getString(R.string.format_wind_mph);
+        mFullFriendlyDate = FormatTemplate.parse(mFullFriendlyDateFormat, "%1$s", "%2$s");
+        mWindKmh = FormatTemplate.parse(mWindKmhFormat, "%1$1.0f", "%2$s");
+        mWindMph = FormatTemplate.parse(mWindMphFormat, "%1$1.0f", "%2$s");
+        mDayNameFormat = new SimpleDateFormat("EEEE", locale);
+        mMonthDayFormat = new SimpleDateFormat("MMMM dd", locale);
+        mShortDateFormat = new SimpleDateFormat("EEE MMM dd", locale);
+        mZone = TimeZone.getDefault();
+        mZoneCheckedAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * @return the formatter of the current default locale
+     */
+    public static DisplayFormatter get(Context context) {
+        Locale locale = Locale.getDefault();
+        DisplayFormatter formatter = sInstance;
+        if (formatter == null || !formatter.mLocale.equals(locale)) {
+            formatter = new DisplayFormatter(context.getApplicationContext(), locale);
+            sInstance = formatter;
+        }
+        return formatter;
+    }
+
+    // Drop every cached label when the day or the time zone changed since the last call
+    private void refreshLocked(long now) {
+        long elapsed = SystemClock.elapsedRealtime();
+        if (elapsed - mZoneCheckedAt >= ZONE_CHECK_INTERVAL_MS) {
+            mZoneCheckedAt = elapsed;
+            TimeZone zone = TimeZone.getDefault();
+            if (!zone.getID().equals(mZone.getID())) {
+                mZone = zone;
+                mDayNameFormat.setTimeZone(zone);
+                mMonthDayFormat.setTimeZone(zone);
+                mShortDateFormat.setTimeZone(zone);
+                mCurrentJulianDay = 0;
+            }
+        }
+        int today = julianDayLocked(now, now);
+        if (today != mCurrentJulianDay) {
+            mCurrentJulianDay = today;
+            mTodayLongLabel = null;
+            mFriendlyDays.clear();
+            mFullFriendlyDays.clear();
+            mDayNames.clear();
+            mMonthDays.clear();
+        }
+    }
+
+    // Julian day of a date, using the current offset of the zone as the Time based helpers did
+    private int julianDayLocked(long dateInMillis, long now) {
+        return Time.getJulianDay(dateInMillis, mZone.getOffset(now) / 1000);
+    }
+
+    /**
+     * @see Utility#getFriendlyDayString(Context, long, boolean)
+     */
+    public synchronized String getFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        long now = System.currentTimeMillis();
+        refreshLocked(now);
+        int julianDay = julianDayLocked(dateInMillis, now);
+        if (displayLongToday && julianDay == mCurrentJulianDay) {
+            if (mTodayLongLabel == null) {
+                mTodayLongLabel = fullFriendlyLocked(mToday, monthDayLocked(dateInMillis, julianDay));
+            }
+            return mTodayLongLabel;
+        }
+        String label = mFriendlyDays.get(julianDay);
+        if (label == null) {
+            if (julianDay < mCurrentJulianDay + 7) {
+                // If the input date is less than a week in the future, just return the day name.
+                label = dayNameLocked(dateInMillis, julianDay);
+            } else {
+                // Otherwise, use the form "Mon Jun 3"
+                label = mShortDateFormat.format(dateInMillis);
+            }
+            mFriendlyDays.put(julianDay, label);
+        }
+        return label;
+    }
+
+    /**
+     * @see Utility#getFullFriendlyDayString(Context, long)
+     */
+    public synchronized String getFullFriendlyDayString(long dateInMillis) {
+        long now = System.currentTimeMillis();
+        refreshLocked(now);
+        int julianDay = julianDayLocked(dateInMillis, now);
+        String label = mFullFriendlyDays.get(julianDay);
+        if (label == null) {
+            label = fullFriendlyLocked(dayNameLocked(dateInMillis, julianDay), monthDayLocked(dateInMillis, julianDay));
+            mFullFriendlyDays.put(julianDay, label);
+        }
+        return label;
+    }
+
+    /**
+     * @see Utility#getDayName(Context, long)
+     */
+    public synchronized String getDayName(long dateInMillis) {
+        long now = System.currentTimeMillis();
+        refreshLocked(now);
+        return dayNameLocked(dateInMillis, julianDayLocked(dateInMillis, now));
+    }
+
+    /**
+     * @see Utility#getFormattedMonthDay(Context, long)
+     */
+    public synchronized String getFormattedMonthDay(long dateInMillis) {
+        long now = System.currentTimeMillis();
+        refreshLocked(now);
+        return monthDayLocked(dateInMillis, julianDayLocked(dateInMillis, now));
+    }
+
+    private String dayNameLocked(long dateInMillis, int julianDay) {
+        if (julianDay == mCurrentJulianDay) {
+            return mToday;
+        } else if (julianDay == mCurrentJulianDay + 1) {
+            return mTomorrow;
+        }
+        String name = mDayNames.get(julianDay);
+        if (name == null) {
+            name = mDayNameFormat.format(dateInMillis);
+            mDayNames.put(julianDay, name);
+        }
+        return name;
+    }
+
+    private String monthDayLocked(long dateInMillis, int julianDay) {
+        String monthDay = mMonthDays.get(julianDay);
+        if (monthDay == null) {
+            monthDay = mMonthDayFormat.format(dateInMillis);
+            mMonthDays.put(julianDay, monthDay);
+        }
+        return monthDay;
+    }
+
+    private String fullFriendlyLocked(String day, String monthDay) {
+        if (mFullFriendlyDate == null) {
+            return String.format(mFullFriendlyDateFormat, day, monthDay);
+        }
+        mBuilder.setLength(0);
+        return mFullFriendlyDate.append(mBuilder, day, monthDay).toString();
+    }
+
+    /**
+     * Append the wind, e.g. "12 km/h NW", to a builder.
+     */
+    public synchronized StringBuilder appendWind(StringBuilder builder, float windSpeed, float degrees, boolean metric) {
+        FormatTemplate template = metric ? mWindKmh : mWindMph;
+        String direction = WindFormatter.direction(degrees);
+        if (template == null) {
+            return builder.append(String.format(metric ? mWindKmhFormat : mWindMphFormat,
+                    WindFormatter.toDisplayUnits(windSpeed, metric), direction));
+        }
+        template.appendPrefix(builder);
+        WindFormatter.appendSpeed(builder, windSpeed, metric);
+        template.appendMiddle(builder).append(direction);
+        return template.appendSuffix(builder);
+    }
+
+    /**
+     * @see Utility#getFormattedWind(Context, float, float)
+     */
+    public synchronized String formatWind(float windSpeed, float degrees, boolean metric) {
+        mBuilder.setLength(0);
+        return appendWind(mBuilder, windSpeed, degrees, metric).toString();
+    }
+}
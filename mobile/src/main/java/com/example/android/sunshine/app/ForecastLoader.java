@@ -0,0 +1,107 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.AsyncTaskLoader;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.art.ArtCache;
+
+import java.util.Locale;
+
+/**
+ * Loads the forecast list into a {@link ForecastSnapshot} and, still on the loader thread, diffs it
+ * against the previously delivered one by date. A sync that changed nothing then costs no rebinds
+ * at all, and the cursor is closed before anything reaches the main thread.
+ * <p/>
+ * Row hashes include the display settings (units, art pack, today's date, locale, cached art), so
+ * a change of those still rebinds every row and formats its strings again.
+ */
+public class ForecastLoader extends AsyncTaskLoader<ForecastSnapshot> {
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private final Uri mUri;
+    private final String[] mProjection;
+    private final String mSortOrder;
+    private boolean mObserving;
+
+    // Last delivered snapshot, written on the main thread and read by the next load
+    private volatile ForecastSnapshot mDelivered;
+
+    public ForecastLoader(Context context, Uri uri, String[] projection, String sortOrder) {
+        super(context);
+        mUri = uri;
+        mProjection = projection;
+        mSortOrder = sortOrder;
+    }
+
+    @Override
+    public ForecastSnapshot loadInBackground() {
+        Cursor cursor = getContext().getContentResolver().query(mUri, mProjection, null, null, mSortOrder);
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return ForecastSnapshot.fromCursor(getContext(), cursor, mDelivered, computeDisplayHash(getContext()));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(ForecastSnapshot snapshot) {
+        if (isReset()) {
+            return;
+        }
+        mDelivered = snapshot;
+        if (isStarted()) {
+            super.deliverResult(snapshot);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            // The provider notifies the weather uris, same as the cursor of a CursorLoader would see
+            getContext().getContentResolver().registerContentObserver(mUri, true, mObserver);
+            mObserving = true;
+        }
+        if (mDelivered != null) {
+            deliverResult(mDelivered);
+        }
+        if (takeContentChanged() || mDelivered == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mDelivered = null;
+    }
+
+    // Everything besides the row itself that changes how it is shown
+    private static int computeDisplayHash(Context context) {
+        SettingsSnapshot settings = SettingsSnapshot.get(context);
+        Time time = new Time();
+        time.setToNow();
+        int hash = settings.metric ? 1 : 0;
+        hash = 31 * hash + settings.artPack.hashCode();
+        // Rows point at the cached art once it was prefetched
+        hash = 31 * hash + ArtCache.get(context).getGeneration();
+        hash = 31 * hash + Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+        hash = 31 * hash + Locale.getDefault().hashCode();
+        return hash;
+    }
+}
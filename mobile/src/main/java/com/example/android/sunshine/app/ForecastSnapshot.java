@@ -0,0 +1,285 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import com.example.android.sunshine.app.art.ArtCache;
+import com.example.android.sunshine.app.common.SortedKeyDiff;
+import com.example.android.sunshine.app.common.TemperatureFormatter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable copy of the forecast list, read out of the cursor on the loader thread into primitive
+ * arrays. Binding a row is a few array reads and finding the row of a date is a hash lookup, so
+ * the main thread never walks a cursor.
+ * <p/>
+ * Each row also carries a content hash, and each snapshot the diff to the one delivered before it.
+ * <p/>
+ * Everything a row shows is prepared here too: date label, description, temperatures, their
+ * accessibility strings and the art to load. Rows whose date and hash match the previous snapshot
+ * reuse its strings, so a load only formats what changed and onBindViewHolder only sets text.
+ */
+public final class ForecastSnapshot {
+
+    private static final AtomicLong sNextId = new AtomicLong(1);
+
+    // Identifies the snapshot a diff was computed against, without keeping that snapshot alive
+    private final long mId = sNextId.getAndIncrement();
+
+    private final int mCount;
+    private final long[] mDates;
+    private final int[] mWeatherIds;
+    private final double[] mHighs;
+    private final double[] mLows;
+    private final int[] mHashes;
+    private final String mCoordLat;
+    private final String mCoordLong;
+
+    // Presentation of every row
+    private final String[] mDateLabels;
+    // Long form of the first row's date, e.g. "Today, June 24", for the today layout
+    private final String mFirstDateLongLabel;
+    private final String[] mDescriptions;
+    private final String[] mDescriptionA11y;
+    private final String[] mHighLabels;
+    private final String[] mHighA11y;
+    private final String[] mLowLabels;
+    private final String[] mLowA11y;
+    private final int[] mIconResources;
+    private final int[] mArtResources;
+    private final boolean mLocalGraphics;
+    // Null when the local art pack is used
+    private final String[] mArtUrls;
+
+    // Open addressing table from date to position, twice as large as the row count
+    private final long[] mIndexDates;
+    private final int[] mIndexPositions;
+
+    private final long mDiffBaseId;
+    private final SortedKeyDiff mDiff;
+
+    private ForecastSnapshot(Context context, int count, long[] dates, int[] weatherIds,
+                             double[] highs, double[] lows, int[] hashes, String coordLat,
+                             String coordLong, ForecastSnapshot base, SortedKeyDiff diff) {
+        mCount = count;
+        mDates = dates;
+        mWeatherIds = weatherIds;
+        mHighs = highs;
+        mLows = lows;
+        mHashes = hashes;
+        mCoordLat = coordLat;
+        mCoordLong = coordLong;
+        mDiffBaseId = base != null ? base.mId : 0;
+        mDiff = diff;
+        mDateLabels = new String[count];
+        mDescriptions = new String[count];
+        mDescriptionA11y = new String[count];
+        mHighLabels = new String[count];
+        mHighA11y = new String[count];
+        mLowLabels = new String[count];
+        mLowA11y = new String[count];
+        mIconResources = new int[count];
+        mArtResources = new int[count];
+        mArtUrls = new String[count];
+        mLocalGraphics = Utility.usingLocalGraphics(context);
+        mFirstDateLongLabel = count > 0 ? Utility.getFriendlyDayString(context, dates[0], true) : null;
+
+        int capacity = Integer.highestOneBit(Math.max(1, count) * 2) * 2;
+        mIndexDates = new long[capacity];
+        mIndexPositions = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf(dates[i]);
+            while (mIndexPositions[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            mIndexDates[slot] = dates[i];
+            // Stored off by one so 0 marks an empty slot
+            mIndexPositions[slot] = i + 1;
+        }
+
+        present(context, base);
+    }
+
+    // Fill in the display strings, reusing those of base for rows that did not change
+    private void present(Context context, ForecastSnapshot base) {
+        boolean metric = Utility.isMetric(context);
+        for (int i = 0; i < mCount; i++) {
+            int weatherId = mWeatherIds[i];
+            mIconResources[i] = Utility.getIconResourceForWeatherCondition(weatherId);
+            mArtResources[i] = Utility.getArtResourceForWeatherCondition(weatherId);
+
+            int basePosition = base != null ? base.positionOf(mDates[i]) : -1;
+            if (basePosition >= 0 && base.mHashes[basePosition] == mHashes[i]) {
+                // Same date, data and display settings, so the same strings
+                mDateLabels[i] = base.mDateLabels[basePosition];
+                mDescriptions[i] = base.mDescriptions[basePosition];
+                mDescriptionA11y[i] = base.mDescriptionA11y[basePosition];
+                mHighLabels[i] = base.mHighLabels[basePosition];
+                mHighA11y[i] = base.mHighA11y[basePosition];
+                mLowLabels[i] = base.mLowLabels[basePosition];
+                mLowA11y[i] = base.mLowA11y[basePosition];
+                mArtUrls[i] = base.mArtUrls[basePosition];
+                continue;
+            }
+
+            mDateLabels[i] = Utility.getFriendlyDayString(context, mDates[i], false);
+            mDescriptions[i] = Utility.getStringForWeatherCondition(context, weatherId);
+            mDescriptionA11y[i] = context.getString(R.string.a11y_forecast, mDescriptions[i]);
+            mHighLabels[i] = TemperatureFormatter.format(mHighs[i], metric);
+            mHighA11y[i] = context.getString(R.string.a11y_high_temp, mHighLabels[i]);
+            mLowLabels[i] = TemperatureFormatter.format(mLows[i], metric);
+            mLowA11y[i] = context.getString(R.string.a11y_low_temp, mLowLabels[i]);
+            mArtUrls[i] = mLocalGraphics ? null : ArtCache.get(context).getArtUrl(weatherId);
+        }
+    }
+
+    /**
+     * Read all rows of a cursor holding ForecastFragment#FORECAST_COLUMNS. Must not be called on
+     * the main thread.
+     *
+     * @param context     used to format the rows, with the units and art pack set at the moment
+     * @param base        snapshot the adapter shows at the moment, the result carries the diff to it
+     * @param displayHash hash of the settings that change how a row is shown
+     */
+    static ForecastSnapshot fromCursor(Context context, Cursor cursor, ForecastSnapshot base, int displayHash) {
+        int count = cursor.getCount();
+        long[] dates = new long[count];
+        int[] weatherIds = new int[count];
+        double[] highs = new double[count];
+        double[] lows = new double[count];
+        int[] hashes = new int[count];
+        String coordLat = null;
+        String coordLong = null;
+        for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+            dates[i] = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+            weatherIds[i] = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+            highs[i] = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
+            lows[i] = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+            int hash = displayHash;
+            hash = 31 * hash + weatherIds[i];
+            hash = 31 * hash + hashDouble(highs[i]);
+            hash = 31 * hash + hashDouble(lows[i]);
+            hashes[i] = hash;
+            if (i == 0) {
+                coordLat = cursor.getString(ForecastFragment.COL_COORD_LAT);
+                coordLong = cursor.getString(ForecastFragment.COL_COORD_LONG);
+            }
+        }
+
+        SortedKeyDiff diff = null;
+        if (base != null) {
+            diff = SortedKeyDiff.compute(base.mDates, base.mHashes, base.mCount, dates, hashes, count);
+        }
+        return new ForecastSnapshot(context, count, dates, weatherIds, highs, lows, hashes,
+                coordLat, coordLong, base, diff);
+    }
+
+    private static int hashDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    private int slotOf(long date) {
+        long mixed = date * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32) & (mIndexDates.length - 1);
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public long getDate(int position) {
+        return mDates[position];
+    }
+
+    public int getWeatherId(int position) {
+        return mWeatherIds[position];
+    }
+
+    public double getHigh(int position) {
+        return mHighs[position];
+    }
+
+    public double getLow(int position) {
+        return mLows[position];
+    }
+
+    // Coordinates of the forecast location, null when there are no rows
+    public String getCoordLat() {
+        return mCoordLat;
+    }
+
+    public String getCoordLong() {
+        return mCoordLong;
+    }
+
+    // Date label of a row, the long "Today, June 24" form for the today layout of the first one
+    public String getDateLabel(int position, boolean longToday) {
+        return longToday && position == 0 ? mFirstDateLongLabel : mDateLabels[position];
+    }
+
+    public String getDescription(int position) {
+        return mDescriptions[position];
+    }
+
+    public String getDescriptionContentDescription(int position) {
+        return mDescriptionA11y[position];
+    }
+
+    public String getHighLabel(int position) {
+        return mHighLabels[position];
+    }
+
+    public String getHighContentDescription(int position) {
+        return mHighA11y[position];
+    }
+
+    public String getLowLabel(int position) {
+        return mLowLabels[position];
+    }
+
+    public String getLowContentDescription(int position) {
+        return mLowA11y[position];
+    }
+
+    public int getIconResource(int position) {
+        return mIconResources[position];
+    }
+
+    public int getArtResource(int position) {
+        return mArtResources[position];
+    }
+
+    // Whether the art resources are shown instead of loading the art urls
+    public boolean usesLocalGraphics() {
+        return mLocalGraphics;
+    }
+
+    // Url of the row's art, null when the local art pack is used
+    public String getArtUrl(int position) {
+        return mArtUrls[position];
+    }
+
+    /**
+     * @return the row of the given date, or -1 if there is none
+     */
+    public int positionOf(long date) {
+        if (mCount == 0) {
+            return -1;
+        }
+        int slot = slotOf(date);
+        while (mIndexPositions[slot] != 0) {
+            if (mIndexDates[slot] == date) {
+                return mIndexPositions[slot] - 1;
+            }
+            slot = (slot + 1) & (mIndexDates.length - 1);
+        }
+        return -1;
+    }
+
+    // The diff from base to this snapshot, null when every row has to be rebound
+    public SortedKeyDiff getDiffFrom(ForecastSnapshot base) {
+        return base != null && base.mId == mDiffBaseId ? mDiff : null;
+    }
+}
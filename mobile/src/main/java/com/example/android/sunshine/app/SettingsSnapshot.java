@@ -0,0 +1,84 @@
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Immutable copy of the user settings the app reads on hot paths: every forecast row, widget item
+ * and wear push. It is read once, replaced whenever the default shared preferences change, and
+ * callers read plain fields instead of a preference lookup and several resource strings per call.
+ */
+public final class SettingsSnapshot {
+
+    /**
+     * Told about every new snapshot, on the thread that changed the preferences.
+     */
+    public interface Listener {
+        void onSettingsChanged(SettingsSnapshot settings);
+    }
+
+    private static final Object sLock = new Object();
+    private static final CopyOnWriteArrayList<Listener> sListeners = new CopyOnWriteArrayList<>();
+    private static volatile SettingsSnapshot sCurrent;
+    // SharedPreferences only keeps a weak reference to its listeners
+    private static SharedPreferences.OnSharedPreferenceChangeListener sPreferenceListener;
+
+    public final String location;
+    public final boolean metric;
+    // Url format of the art pack, with a %s for the art name
+    public final String artPack;
+    public final boolean localGraphics;
+    public final boolean notificationsEnabled;
+
+    private SettingsSnapshot(Context context, SharedPreferences prefs) {
+        location = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+        String metricUnits = context.getString(R.string.pref_units_metric);
+        metric = prefs.getString(context.getString(R.string.pref_units_key), metricUnits).equals(metricUnits);
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        artPack = prefs.getString(context.getString(R.string.pref_art_pack_key), sunshineArtPack);
+        localGraphics = artPack.equals(sunshineArtPack);
+        notificationsEnabled = prefs.getBoolean(context.getString(R.string.pref_enable_notifications_key),
+                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
+    }
+
+    /**
+     * @return the current settings, read from the default shared preferences on first use
+     */
+    public static SettingsSnapshot get(Context context) {
+        SettingsSnapshot current = sCurrent;
+        if (current != null) {
+            return current;
+        }
+        synchronized (sLock) {
+            if (sCurrent == null) {
+                final Context appContext = context.getApplicationContext();
+                SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+                sPreferenceListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                        SettingsSnapshot settings = new SettingsSnapshot(appContext, sharedPreferences);
+                        sCurrent = settings;
+                        for (Listener listener : sListeners) {
+                            listener.onSettingsChanged(settings);
+                        }
+                    }
+                };
+                prefs.registerOnSharedPreferenceChangeListener(sPreferenceListener);
+                sCurrent = new SettingsSnapshot(appContext, prefs);
+            }
+            return sCurrent;
+        }
+    }
+
+    public static void addListener(Listener listener) {
+        sListeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        sListeners.remove(listener);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.android.sunshine.app;
+
+import android.app.Application;
+
+import com.example.android.sunshine.app.sync.SyncStatusStore;
+
+/**
+ * Opens the sync status file on a worker thread as the process starts, so the first screen and
+ * the first sync find it mapped instead of opening it on their own thread.
+ */
+public class SunshineApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        SyncStatusStore.warmUp(this);
+    }
+}
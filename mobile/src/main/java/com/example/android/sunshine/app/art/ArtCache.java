@@ -0,0 +1,279 @@
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.common.WeatherConditions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Weather art of the art packs, kept on disk and decoded in memory. An art pack has only a few
+ * images ({@link WeatherConditions#ART_COUNT}), so the whole pack is downloaded at once by
+ * {@link #prefetch()} and the list, the detail view, the widgets and the notification read it from
+ * here instead of each loading the art pack url again.
+ * <p/>
+ * The disk tier holds the packs used most recently, up to {@link #MAX_DISK_BYTES}. The memory
+ * tier holds decoded bitmaps per size.
+ */
+public class ArtCache {
+
+    private static final String LOG_TAG = ArtCache.class.getSimpleName();
+
+    private static final String DIRECTORY = "art";
+    // Room for the current art pack and a previous one
+    static final long MAX_DISK_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES = 4 * 1024 * 1024;
+    private static final int TIMEOUT_MILLIS = 15 * 1000;
+
+    private static ArtCache sInstance;
+
+    private final Context mContext;
+    private final File mDirectory;
+    private final LruCache<String, Bitmap> mBitmaps = new LruCache<String, Bitmap>(MAX_MEMORY_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getByteCount();
+        }
+    };
+    // Names of the files on disk, so lookups do not touch the file system
+    private final Set<String> mOnDisk = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // Incremented whenever art was added, the forecast list then points its rows at the files
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    private ArtCache(Context context) {
+        mContext = context.getApplicationContext();
+        mDirectory = new File(mContext.getCacheDir(), DIRECTORY);
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(LOG_TAG, "Could not create " + mDirectory);
+        }
+        String[] names = mDirectory.list();
+        if (names != null) {
+            Collections.addAll(mOnDisk, names);
+        }
+    }
+
+    public static synchronized ArtCache get(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArtCache(context);
+        }
+        return sInstance;
+    }
+
+    private static String fileName(String artPack, String artName) {
+        return Integer.toHexString(artPack.hashCode()) + "_" + artName;
+    }
+
+    public int getGeneration() {
+        return mGeneration.get();
+    }
+
+    /**
+     * @return the file of the condition's art in the current art pack, null if it was not
+     * prefetched or the condition has no art
+     */
+    public File getFile(int weatherId) {
+        String artName = WeatherConditions.getArtName(weatherId);
+        if (artName == null) {
+            return null;
+        }
+        String name = fileName(SettingsSnapshot.get(mContext).artPack, artName);
+        return mOnDisk.contains(name) ? new File(mDirectory, name) : null;
+    }
+
+    /**
+     * @return the url Glide should load the condition's art from, the cached file once the pack
+     * was prefetched and the art pack url before that
+     */
+    public String getArtUrl(int weatherId) {
+        File file = getFile(weatherId);
+        return file != null ? Uri.fromFile(file).toString()
+                : Utility.getArtUrlForWeatherCondition(mContext, weatherId);
+    }
+
+    /**
+     * Decode the condition's art to fit width x height, or at its own size if those are 0. Never
+     * loads from the network, call off the main thread.
+     *
+     * @return the art, null if it is not prefetched
+     */
+    public Bitmap getBitmap(int weatherId, int width, int height) {
+        File file = getFile(weatherId);
+        if (file == null) {
+            return null;
+        }
+        String key = file.getName() + "@" + width + "x" + height;
+        Bitmap bitmap = mBitmaps.get(key);
+        if (bitmap == null) {
+            bitmap = decode(file, width, height);
+            if (bitmap == null) {
+                // Removed with the rest of the cache directory when storage ran low
+                mOnDisk.remove(file.getName());
+                return null;
+            }
+            mBitmaps.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    // Decode the file to fit width x height, or at its own size if those are 0
+    public static Bitmap decode(File file, int width, int height) {
+        String path = file.getPath();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        if (width > 0 && height > 0) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(path, options);
+            int sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null || width <= 0 || height <= 0
+                || (bitmap.getWidth() <= width && bitmap.getHeight() <= height)) {
+            return bitmap;
+        }
+        // Scale the rest of the way, keeping the aspect ratio as fitCenter does
+        float scale = Math.min((float) width / bitmap.getWidth(), (float) height / bitmap.getHeight());
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * @return true if every art of the current art pack is on disk
+     */
+    public boolean isComplete() {
+        String artPack = SettingsSnapshot.get(mContext).artPack;
+        for (int art = 0; art < WeatherConditions.ART_COUNT; art++) {
+            if (!mOnDisk.contains(fileName(artPack, WeatherConditions.getNameOfArt(art)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Download the art of the current art pack that is not on disk yet, then trim the disk tier.
+     * Blocks, call on a worker thread.
+     *
+     * @return the number of images downloaded
+     */
+    public int prefetch() {
+        String artPack = SettingsSnapshot.get(mContext).artPack;
+        long now = System.currentTimeMillis();
+        int downloaded = 0;
+        for (int art = 0; art < WeatherConditions.ART_COUNT; art++) {
+            String artName = WeatherConditions.getNameOfArt(art);
+            File file = new File(mDirectory, fileName(artPack, artName));
+            if (mOnDisk.contains(file.getName()) && file.exists()) {
+                // Used again, keep it over the art of older packs
+                file.setLastModified(now);
+                continue;
+            }
+            String url = String.format(Locale.US, artPack, artName);
+            try {
+                // Straight into our directory, Glide's disk cache would keep a second copy
+                File temp = new File(mDirectory, file.getName() + ".tmp");
+                download(url, temp);
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Could not rename " + temp);
+                }
+                mOnDisk.add(file.getName());
+                downloaded++;
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error prefetching art from " + url, e);
+            }
+        }
+        if (downloaded > 0) {
+            mGeneration.incrementAndGet();
+        }
+        trim();
+        return downloaded;
+    }
+
+    // Fetch the url straight into the target file, deleted again if the download fails
+    public static void download(String url, File target) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            urlConnection.setConnectTimeout(TIMEOUT_MILLIS);
+            urlConnection.setReadTimeout(TIMEOUT_MILLIS);
+            if (urlConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + urlConnection.getResponseCode() + " for " + url);
+            }
+            InputStream in = urlConnection.getInputStream();
+            try {
+                OutputStream out = new FileOutputStream(target);
+                try {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            if (target.exists() && !target.delete()) {
+                Log.w(LOG_TAG, "Could not delete " + target);
+            }
+            throw e;
+        } finally {
+            urlConnection.disconnect();
+        }
+    }
+
+    // Delete the least recently used files beyond MAX_DISK_BYTES
+    private void trim() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long left = lhs.lastModified();
+                long right = rhs.lastModified();
+                return left > right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+            if (total > MAX_DISK_BYTES) {
+                mOnDisk.remove(file.getName());
+                if (!file.delete()) {
+                    Log.w(LOG_TAG, "Could not delete " + file);
+                }
+            }
+        }
+    }
+}
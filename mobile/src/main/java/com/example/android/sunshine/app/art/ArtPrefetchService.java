@@ -0,0 +1,57 @@
+package com.example.android.sunshine.app.art;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Downloads the current art pack into the {@link ArtCache}, when the art pack changed or while the
+ * device is charging and the pack is not complete yet.
+ */
+public class ArtPrefetchService extends IntentService {
+
+    private static final String LOG_TAG = ArtPrefetchService.class.getSimpleName();
+
+    public static final String ACTION_PREFETCH = "com.example.android.sunshine.app.ACTION_PREFETCH_ART";
+
+    public ArtPrefetchService() {
+        super("ArtPrefetchService");
+    }
+
+    public static void prefetch(Context context) {
+        context.startService(new Intent(context, ArtPrefetchService.class).setAction(ACTION_PREFETCH));
+    }
+
+    /**
+     * Prefetch only if the pack is incomplete and the device is plugged in, so the download does
+     * not compete with the sync on battery.
+     */
+    public static void prefetchIfCharging(Context context) {
+        if (ArtCache.get(context).isComplete()) {
+            return;
+        }
+        // Sticky broadcast, no receiver is registered
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) {
+            prefetch(context);
+        }
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        if (intent == null || !ACTION_PREFETCH.equals(intent.getAction())) {
+            return;
+        }
+        int downloaded = ArtCache.get(this).prefetch();
+        Log.d(LOG_TAG, "Prefetched " + downloaded + " images");
+        if (downloaded > 0) {
+            // Lets the forecast list load its art from the cache
+            getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+        }
+    }
+}
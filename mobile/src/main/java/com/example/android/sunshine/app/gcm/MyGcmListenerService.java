@@ -21,7 +21,6 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
@@ -29,6 +28,8 @@ import android.widget.Toast;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.common.WeatherConditions;
+import com.example.android.sunshine.app.notification.LargeIconCache;
 import com.google.android.gms.gcm.GcmListenerService;
 
 import org.json.JSONException;
@@ -91,10 +92,11 @@ public class MyGcmListenerService extends GcmListenerService {
                 PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class), 0);
 
         // Notifications using both a large and a small icon (which yours should!) need the large
-        // icon as a bitmap. So we need to create that here from the resource ID, and pass the
-        // object along in our notification builder. Generally, you want to use the app icon as the
-        // small icon, so that users understand what app is triggering this notification.
-        Bitmap largeIcon = BitmapFactory.decodeResource(this.getResources(), R.drawable.art_storm);
+        // icon as a bitmap. The cache decodes it from the resource once, at the large icon size,
+        // and we pass the object along in our notification builder. Generally, you want to use
+        // the app icon as the small icon, so that users understand what app is triggering this
+        // notification.
+        Bitmap largeIcon = LargeIconCache.get(this).getLocalIcon(WeatherConditions.ART_STORM);
         NotificationCompat.Builder mBuilder =
                 new NotificationCompat.Builder(this)
                         .setSmallIcon(R.drawable.art_clear)
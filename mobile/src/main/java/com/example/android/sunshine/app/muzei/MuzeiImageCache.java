@@ -0,0 +1,162 @@
+package com.example.android.sunshine.app.muzei;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.example.android.sunshine.app.art.ArtCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The condition photos of the Muzei source, downloaded once and scaled down to the screen size,
+ * so Muzei loads a small local image from {@link WeatherImageProvider} instead of the full size
+ * photo. There are only a handful of photos, one per condition class, so every one is kept. The
+ * original is only held in a temporary file while it is scaled, so it is not cached anywhere.
+ * <p/>
+ * Also counts the publishes avoided and the bytes Muzei did not have to download.
+ */
+public class MuzeiImageCache {
+
+    private static final String LOG_TAG = MuzeiImageCache.class.getSimpleName();
+
+    static final String DIRECTORY = "muzei";
+
+    private static final String PREFS_NAME = "muzei_images";
+    private static final String KEY_ORIGINAL_BYTES = "original_bytes_";
+    private static final String KEY_AVOIDED = "avoided_publishes";
+    private static final String KEY_BYTES_SAVED = "bytes_saved";
+
+    private static final int JPEG_QUALITY = 90;
+
+    private final Context mContext;
+    private final File mDirectory;
+    // Longer side of the screen, the shorter side of a cached photo is scaled down to it
+    private final int mScreenSize;
+    private final SharedPreferences mPrefs;
+
+    public MuzeiImageCache(Context context) {
+        this(context, getScreenSize(context));
+    }
+
+    MuzeiImageCache(Context context, int screenSize) {
+        mContext = context.getApplicationContext();
+        mDirectory = getDirectory(mContext);
+        mScreenSize = screenSize;
+        mPrefs = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(LOG_TAG, "Could not create " + mDirectory);
+        }
+    }
+
+    static File getDirectory(Context context) {
+        return new File(context.getCacheDir(), DIRECTORY);
+    }
+
+    // Muzei crops the image to the screen in either orientation, so it has to cover the longer side
+    private static int getScreenSize(Context context) {
+        DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
+        return Math.max(displayMetrics.widthPixels, displayMetrics.heightPixels);
+    }
+
+    private static String fileName(String imageUrl) {
+        return Integer.toHexString(imageUrl.hashCode()) + ".jpg";
+    }
+
+    /**
+     * @return the scaled down photo, downloaded first if it is not cached, or null if that failed.
+     * Blocks, call on a worker thread.
+     */
+    public File get(String imageUrl) {
+        File file = new File(mDirectory, fileName(imageUrl));
+        if (file.exists()) {
+            return file;
+        }
+        File source = new File(mDirectory, file.getName() + ".download");
+        try {
+            ArtCache.download(imageUrl, source);
+            long originalBytes = source.length();
+            Bitmap bitmap = decode(source);
+            if (bitmap == null) {
+                throw new IOException("Could not decode " + source);
+            }
+            File temp = new File(mDirectory, file.getName() + ".tmp");
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+            } finally {
+                out.close();
+                bitmap.recycle();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp);
+            }
+            mPrefs.edit().putLong(KEY_ORIGINAL_BYTES + file.getName(), originalBytes).apply();
+            Log.d(LOG_TAG, "Cached " + imageUrl + ", " + originalBytes + " bytes scaled to "
+                    + file.length());
+            return file;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error caching image from " + imageUrl, e);
+            return null;
+        } finally {
+            if (source.exists() && !source.delete()) {
+                Log.w(LOG_TAG, "Could not delete " + source);
+            }
+        }
+    }
+
+    // Scale so the shorter side of the photo still covers the screen, never up
+    private Bitmap decode(File source) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getPath(), options);
+        int shorterSide = Math.min(options.outWidth, options.outHeight);
+        if (shorterSide <= mScreenSize) {
+            return ArtCache.decode(source, 0, 0);
+        }
+        float scale = (float) mScreenSize / shorterSide;
+        return ArtCache.decode(source, Math.round(options.outWidth * scale),
+                Math.round(options.outHeight * scale));
+    }
+
+    /**
+     * Count a publish left out as the artwork did not change, Muzei did not download the photo
+     * again.
+     */
+    public void recordAvoidedPublish(File file) {
+        long saved = mPrefs.getLong(KEY_ORIGINAL_BYTES + file.getName(), 0);
+        record(1, saved);
+    }
+
+    /**
+     * Count a publish of the scaled down photo instead of the original.
+     */
+    public void recordLocalPublish(File file) {
+        long saved = mPrefs.getLong(KEY_ORIGINAL_BYTES + file.getName(), 0) - file.length();
+        record(0, Math.max(0, saved));
+    }
+
+    private synchronized void record(int avoided, long saved) {
+        int avoidedPublishes = mPrefs.getInt(KEY_AVOIDED, 0) + avoided;
+        long bytesSaved = mPrefs.getLong(KEY_BYTES_SAVED, 0) + saved;
+        mPrefs.edit()
+                .putInt(KEY_AVOIDED, avoidedPublishes)
+                .putLong(KEY_BYTES_SAVED, bytesSaved)
+                .apply();
+        Log.d(LOG_TAG, "Muzei publishes avoided: " + avoidedPublishes + ", bytes saved: " + bytesSaved);
+    }
+
+    public int getAvoidedPublishes() {
+        return mPrefs.getInt(KEY_AVOIDED, 0);
+    }
+
+    public long getBytesSaved() {
+        return mPrefs.getLong(KEY_BYTES_SAVED, 0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.android.sunshine.app.muzei;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Serves the photos of the {@link MuzeiImageCache} to Muzei, read only.
+ */
+public class WeatherImageProvider extends ContentProvider {
+
+    public static final String AUTHORITY = "com.example.android.sunshine.app.muzei";
+
+    public static Uri buildImageUri(File file) {
+        return new Uri.Builder()
+                .scheme("content")
+                .authority(AUTHORITY)
+                .appendPath(file.getName())
+                .build();
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("Read only: " + uri);
+        }
+        // Only the files of the cache directory itself. The segment is decoded, so an encoded
+        // slash would otherwise reach other directories
+        String name = uri.getLastPathSegment();
+        if (name == null || uri.getPathSegments().size() != 1 || name.startsWith(".")
+                || name.indexOf('/') >= 0) {
+            throw new FileNotFoundException("Unknown uri: " + uri);
+        }
+        File directory = MuzeiImageCache.getDirectory(getContext());
+        File file = new File(directory, name);
+        try {
+            if (!directory.getCanonicalFile().equals(file.getCanonicalFile().getParentFile())) {
+                throw new FileNotFoundException("Unknown uri: " + uri);
+            }
+        } catch (IOException e) {
+            throw new FileNotFoundException("Unknown uri: " + uri);
+        }
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Not cached: " + uri);
+        }
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return "image/jpeg";
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Read only: " + uri);
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only: " + uri);
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only: " + uri);
+    }
+}
@@ -26,6 +26,8 @@ import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.apps.muzei.api.Artwork;
 import com.google.android.apps.muzei.api.MuzeiArtSource;
 
+import java.io.File;
+
 /**
  * Muzei source that changes your background based on the current weather conditions
  */
@@ -66,14 +68,33 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
             String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
             // Only publish a new wallpaper if we have a valid image
             if (imageUrl != null) {
-                publishArtwork(new Artwork.Builder()
-                        .imageUri(Uri.parse(imageUrl))
-                        .title(desc)
-                        .byline(location)
-                        .viewIntent(new Intent(this, MainActivity.class))
-                        .build());
+                MuzeiImageCache cache = new MuzeiImageCache(this);
+                File image = cache.get(imageUrl);
+                Uri imageUri = image != null ? WeatherImageProvider.buildImageUri(image)
+                        : Uri.parse(imageUrl);
+                if (isPublished(getCurrentArtwork(), imageUri, location)) {
+                    // Same condition class and location, Muzei would load and blur it again
+                    if (image != null) {
+                        cache.recordAvoidedPublish(image);
+                    }
+                } else {
+                    if (image != null) {
+                        cache.recordLocalPublish(image);
+                    }
+                    publishArtwork(new Artwork.Builder()
+                            .imageUri(imageUri)
+                            .title(desc)
+                            .byline(location)
+                            .viewIntent(new Intent(this, MainActivity.class))
+                            .build());
+                }
             }
         }
         cursor.close();
     }
+
+    static boolean isPublished(Artwork current, Uri imageUri, String location) {
+        return current != null && imageUri.equals(current.getImageUri())
+                && location.equals(current.getByline());
+    }
 }
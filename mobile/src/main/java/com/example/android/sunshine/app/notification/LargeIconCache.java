@@ -0,0 +1,159 @@
+package com.example.android.sunshine.app.notification;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.art.ArtCache;
+import com.example.android.sunshine.app.common.WeatherConditionResources;
+import com.example.android.sunshine.app.common.WeatherConditions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Notification large icons per condition art, scaled to the large icon size once and kept in
+ * memory and on disk. Icons come from the {@link ArtCache} when the art pack was prefetched and
+ * from the art drawables otherwise, never from the network, so building a notification does
+ * not wait for a download.
+ */
+public class LargeIconCache {
+
+    private static final String LOG_TAG = LargeIconCache.class.getSimpleName();
+
+    private static final String DIRECTORY = "notification_icons";
+
+    private static LargeIconCache sInstance;
+
+    private final Context mContext;
+    private final File mDirectory;
+    private final int mWidth;
+    private final int mHeight;
+    // One icon per art and source, they are small
+    private final LruCache<String, Bitmap> mIcons = new LruCache<>(2 * WeatherConditions.ART_COUNT);
+
+    private LargeIconCache(Context context) {
+        mContext = context.getApplicationContext();
+        mDirectory = new File(mContext.getCacheDir(), DIRECTORY);
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(LOG_TAG, "Could not create " + mDirectory);
+        }
+        Resources resources = mContext.getResources();
+        // On Honeycomb and higher devices, we can retrieve the size of the large icon
+        // Prior to that, we use a fixed size
+        @SuppressLint("InlinedApi")
+        int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+        @SuppressLint("InlinedApi")
+        int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+        mWidth = largeIconWidth;
+        mHeight = largeIconHeight;
+    }
+
+    public static synchronized LargeIconCache get(Context context) {
+        if (sInstance == null) {
+            sInstance = new LargeIconCache(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return the large icon of the condition, from the art pack if it was prefetched, null if
+     * the condition has no art. Call off the main thread.
+     */
+    public Bitmap getIcon(int weatherId) {
+        int art = WeatherConditions.getArt(weatherId);
+        if (art == WeatherConditions.ART_NONE) {
+            return null;
+        }
+        SettingsSnapshot settings = SettingsSnapshot.get(mContext);
+        if (!settings.localGraphics) {
+            String key = Integer.toHexString(settings.artPack.hashCode()) + "_"
+                    + WeatherConditions.getNameOfArt(art) + "_" + mWidth + "x" + mHeight;
+            Bitmap icon = getCached(key);
+            if (icon == null) {
+                Bitmap source = ArtCache.get(mContext).getBitmap(weatherId, mWidth, mHeight);
+                if (source != null) {
+                    icon = put(key, source);
+                }
+            }
+            if (icon != null) {
+                return icon;
+            }
+        }
+        return getLocalIcon(art);
+    }
+
+    /**
+     * @return the large icon of one of the WeatherConditions ART_ constants, from the art
+     * drawables. Call off the main thread.
+     */
+    public Bitmap getLocalIcon(int art) {
+        String key = "local_" + WeatherConditions.getNameOfArt(art) + "_" + mWidth + "x" + mHeight;
+        Bitmap icon = getCached(key);
+        if (icon == null) {
+            Bitmap source = BitmapFactory.decodeResource(mContext.getResources(),
+                    WeatherConditionResources.getResourceOfArt(art));
+            if (source != null) {
+                icon = put(key, source);
+            }
+        }
+        return icon;
+    }
+
+    // From memory, or decoded from disk
+    private Bitmap getCached(String key) {
+        Bitmap icon = mIcons.get(key);
+        if (icon == null) {
+            File file = new File(mDirectory, key + ".png");
+            if (file.exists()) {
+                icon = BitmapFactory.decodeFile(file.getPath());
+                if (icon != null) {
+                    mIcons.put(key, icon);
+                }
+            }
+        }
+        return icon;
+    }
+
+    // Scale to the large icon size and keep in both tiers
+    private Bitmap put(String key, Bitmap source) {
+        Bitmap icon = source;
+        if (source.getWidth() > mWidth || source.getHeight() > mHeight) {
+            // Keep the aspect ratio as fitCenter does
+            float scale = Math.min((float) mWidth / source.getWidth(), (float) mHeight / source.getHeight());
+            icon = Bitmap.createScaledBitmap(source,
+                    Math.max(1, Math.round(source.getWidth() * scale)),
+                    Math.max(1, Math.round(source.getHeight() * scale)), true);
+        }
+        mIcons.put(key, icon);
+        File file = new File(mDirectory, key + ".png");
+        File temp = new File(mDirectory, key + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                icon.compress(Bitmap.CompressFormat.PNG, 100, out);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error storing large icon " + key, e);
+        }
+        return icon;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs what a sync does once the forecast is stored - telling the widgets, Muzei and the watch,
+ * and the daily notification - on a worker thread, so onPerformSync returns and the SyncManager
+ * releases its wake lock without waiting for them.
+ * <p/>
+ * One worker with a short queue: when syncs pile up the oldest waiting work is dropped, together
+ * with its wake lock, the work of a later sync covers it.
+ */
+class SyncFanOut {
+
+    private static final String LOG_TAG = SyncFanOut.class.getSimpleName();
+
+    private static final int QUEUE_SIZE = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    // Keeps the device awake until the work ran, in case it never does
+    private static final long WAKE_LOCK_TIMEOUT_MILLIS = 30 * 1000;
+
+    // Drops the oldest waiting work as DiscardOldestPolicy does, but releases its wake lock first
+    private static final RejectedExecutionHandler sDropOldest = new RejectedExecutionHandler() {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                ((Work) task).release();
+                return;
+            }
+            Runnable dropped = executor.getQueue().poll();
+            if (dropped != null) {
+                ((Work) dropped).release();
+                Log.d(LOG_TAG, "Dropped the work of an earlier sync");
+            }
+            executor.execute(task);
+        }
+    };
+
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(1, 1,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+            sDropOldest);
+
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private SyncFanOut() {
+    }
+
+    static void post(Context context, Runnable work) {
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        PowerManager.WakeLock wakeLock =
+                powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, LOG_TAG);
+        wakeLock.setReferenceCounted(false);
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT_MILLIS);
+        sExecutor.execute(new Work(work, wakeLock));
+    }
+
+    // The work of one sync and the wake lock held for it until it ran or was dropped
+    private static class Work implements Runnable {
+
+        private final Runnable mWork;
+        private final PowerManager.WakeLock mWakeLock;
+
+        Work(Runnable work, PowerManager.WakeLock wakeLock) {
+            mWork = work;
+            mWakeLock = wakeLock;
+        }
+
+        void release() {
+            if (mWakeLock.isHeld()) {
+                mWakeLock.release();
+            }
+        }
+
+        @Override
+        public void run() {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                mWork.run();
+            } catch (RuntimeException e) {
+                Log.e(LOG_TAG, "Error after sync", e);
+            } finally {
+                release();
+            }
+            Log.d(LOG_TAG, "Post-processing took " + (SystemClock.elapsedRealtime() - start)
+                    + "ms off the sync thread");
+        }
+    }
+}
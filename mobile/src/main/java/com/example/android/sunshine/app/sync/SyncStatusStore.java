@@ -0,0 +1,186 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Status of the sync - the location status, when it last synced and notified, and how the last
+ * sync went - in a small memory mapped file. A write is a store into the mapped page that the
+ * kernel writes back later, instead of a commit() that rewrites and syncs the whole shared
+ * preferences file several times per sync.
+ * <p/>
+ * Listeners are told about changes on the main thread. Opening the file reads and maps it, so
+ * {@link #warmUp(Context)} does that on a worker thread when the process starts.
+ */
+public class SyncStatusStore {
+
+    private static final String LOG_TAG = SyncStatusStore.class.getSimpleName();
+
+    private static final String FILE_NAME = "sync_status";
+
+    /**
+     * Told on the main thread when a value of the store changed.
+     */
+    public interface Listener {
+        void onSyncStatusChanged(SyncStatusStore store);
+    }
+
+    private static final int VERSION = 1;
+    // Layout of the file
+    private static final int OFFSET_VERSION = 0;
+    private static final int OFFSET_LOCATION_STATUS = 4;
+    private static final int OFFSET_LAST_SYNC_TIME = 8;
+    private static final int OFFSET_LAST_NOTIFICATION_TIME = 16;
+    private static final int OFFSET_LAST_SYNC_DURATION = 24;
+    private static final int OFFSET_LAST_SYNC_INSERTED = 32;
+    private static final int SIZE = 64;
+
+    private static SyncStatusStore sInstance;
+
+    private final ByteBuffer mBuffer;
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mNotifyListeners = new Runnable() {
+        @Override
+        public void run() {
+            for (Listener listener : mListeners) {
+                listener.onSyncStatusChanged(SyncStatusStore.this);
+            }
+        }
+    };
+
+    SyncStatusStore(Context context, File file) {
+        mBuffer = map(file);
+        if (mBuffer.getInt(OFFSET_VERSION) != VERSION) {
+            // A new file, start from what the shared preferences had
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            mBuffer.putInt(OFFSET_LOCATION_STATUS, prefs.getInt(
+                    context.getString(R.string.pref_location_status_key),
+                    SunshineSyncAdapter.LOCATION_STATUS_UNKNOWN));
+            mBuffer.putLong(OFFSET_LAST_NOTIFICATION_TIME, prefs.getLong(
+                    context.getString(R.string.pref_last_notification), 0));
+            mBuffer.putInt(OFFSET_VERSION, VERSION);
+        }
+    }
+
+    public static synchronized SyncStatusStore get(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new SyncStatusStore(appContext, new File(appContext.getFilesDir(), FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    // Open the store on a worker thread, so the first get() on the main thread finds it open
+    public static void warmUp(Context context) {
+        final Context appContext = context.getApplicationContext();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                get(appContext);
+            }
+        });
+    }
+
+    private static ByteBuffer map(File file) {
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            try {
+                if (randomAccessFile.length() < SIZE) {
+                    randomAccessFile.setLength(SIZE);
+                }
+                // The mapping stays valid once the file is closed
+                return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error mapping " + file + ", the status is kept in memory only", e);
+            return ByteBuffer.allocate(SIZE);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void changed() {
+        mHandler.removeCallbacks(mNotifyListeners);
+        mHandler.post(mNotifyListeners);
+    }
+
+    @SuppressWarnings("ResourceType")
+    public synchronized @SunshineSyncAdapter.LocationStatus int getLocationStatus() {
+        return mBuffer.getInt(OFFSET_LOCATION_STATUS);
+    }
+
+    public void setLocationStatus(@SunshineSyncAdapter.LocationStatus int locationStatus) {
+        synchronized (this) {
+            if (mBuffer.getInt(OFFSET_LOCATION_STATUS) == locationStatus) {
+                return;
+            }
+            mBuffer.putInt(OFFSET_LOCATION_STATUS, locationStatus);
+        }
+        changed();
+    }
+
+    public synchronized long getLastNotificationTime() {
+        return mBuffer.getLong(OFFSET_LAST_NOTIFICATION_TIME);
+    }
+
+    public void setLastNotificationTime(long timeMillis) {
+        synchronized (this) {
+            mBuffer.putLong(OFFSET_LAST_NOTIFICATION_TIME, timeMillis);
+        }
+        changed();
+    }
+
+    // When a sync last stored the forecast
+    public synchronized long getLastSyncTime() {
+        return mBuffer.getLong(OFFSET_LAST_SYNC_TIME);
+    }
+
+    // How long the last successful sync held the sync adapter
+    public synchronized long getLastSyncDuration() {
+        return mBuffer.getLong(OFFSET_LAST_SYNC_DURATION);
+    }
+
+    // Days of forecast the last successful sync stored
+    public synchronized int getLastSyncInserted() {
+        return mBuffer.getInt(OFFSET_LAST_SYNC_INSERTED);
+    }
+
+    /**
+     * Record a sync that stored the forecast.
+     *
+     * @param durationMillis how long the sync held the sync adapter
+     * @param inserted       days of forecast it stored
+     */
+    public void recordSync(long timeMillis, long durationMillis, int inserted) {
+        synchronized (this) {
+            mBuffer.putLong(OFFSET_LAST_SYNC_TIME, timeMillis);
+            mBuffer.putLong(OFFSET_LAST_SYNC_DURATION, durationMillis);
+            mBuffer.putInt(OFFSET_LAST_SYNC_INSERTED, inserted);
+        }
+        changed();
+    }
+}
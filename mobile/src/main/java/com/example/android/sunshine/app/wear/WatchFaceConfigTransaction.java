@@ -0,0 +1,128 @@
+package com.example.android.sunshine.app.wear;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.Constants;
+import com.example.android.sunshine.app.common.config.WatchFaceConfig;
+import com.example.android.sunshine.app.common.config.WatchFaceConfigCodec;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.PutDataRequest;
+import com.google.android.gms.wearable.Wearable;
+
+/**
+ * Collects watch face setting changes for a short while and then saves and sends them together.
+ * <p/>
+ * A burst of colour picks ends up as one preferences write and one DataItem carrying the whole
+ * {@link WatchFaceConfig}, so the watch syncs and redraws once. A configuration saved while the
+ * client is not connected is sent from {@link #onConnected()}, also by a later settings screen.
+ */
+public class WatchFaceConfigTransaction {
+
+    // Logging Identifier for the class
+    private static String LOG_TAG = WatchFaceConfigTransaction.class.getSimpleName();
+
+    // How long to wait for further changes before committing
+    static final long COMMIT_DELAY_MS = 750;
+
+    private final WatchFaceConfigurationPreferences mPreferences;
+    private final GoogleApiClient mGoogleApiClient;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private int mBackgroundColour;
+    private int mDateAndTimeColour;
+    private boolean mPending;
+
+    private final Runnable mCommitRunnable = new Runnable() {
+        @Override
+        public void run() {
+            commit();
+        }
+    };
+
+    public WatchFaceConfigTransaction(WatchFaceConfigurationPreferences preferences, GoogleApiClient googleApiClient) {
+        this.mPreferences = preferences;
+        this.mGoogleApiClient = googleApiClient;
+        this.mBackgroundColour = preferences.getBackgroundColour();
+        this.mDateAndTimeColour = preferences.getDateAndTimeColour();
+    }
+
+    public void setBackgroundColour(int colour) {
+        mBackgroundColour = colour;
+        scheduleCommit();
+    }
+
+    public void setDateAndTimeColour(int colour) {
+        mDateAndTimeColour = colour;
+        scheduleCommit();
+    }
+
+    // Send a configuration that was saved while the client was not connected
+    public void onConnected() {
+        sendIfUnsent();
+    }
+
+    // Commit now whatever is waiting, e.g. when the settings screen goes away
+    public void flush() {
+        if (mPending) {
+            mHandler.removeCallbacks(mCommitRunnable);
+            commit();
+        }
+    }
+
+    private void scheduleCommit() {
+        mPending = true;
+        mHandler.removeCallbacks(mCommitRunnable);
+        mHandler.postDelayed(mCommitRunnable, COMMIT_DELAY_MS);
+    }
+
+    private void commit() {
+        mPending = false;
+        WatchFaceConfig current = mPreferences.getConfig();
+        WatchFaceConfig config = new WatchFaceConfig(current.version, mBackgroundColour, mDateAndTimeColour,
+                current.flags, current.units, current.layout);
+        if (config.hasSameContentAs(current)) {
+            Log.d(LOG_TAG, "Configuration unchanged, nothing to send");
+            return;
+        }
+        String problem = config.findProblem();
+        if (problem != null) {
+            // The watch would reject it too, keep the last good configuration
+            Log.d(LOG_TAG, "Not sending configuration: " + problem);
+            return;
+        }
+        mPreferences.save(config);
+        sendIfUnsent();
+    }
+
+    private void sendIfUnsent() {
+        final WatchFaceConfig saved = mPreferences.getConfig();
+        if (saved.version <= mPreferences.getSentVersion()) {
+            return;
+        }
+        if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting()) {
+            Log.d(LOG_TAG, "Not connected, " + saved + " is sent once connected");
+            return;
+        }
+
+        PutDataMapRequest putDataMapReq = PutDataMapRequest.create(Constants.WATCH_FACE_SETTINGS_PATH);
+        putDataMapReq.getDataMap().putByteArray(Constants.CONFIG_KEY_PAYLOAD, WatchFaceConfigCodec.encode(saved));
+        PutDataRequest putDataReq = putDataMapReq.asPutDataRequest();
+        Wearable.DataApi.putDataItem(mGoogleApiClient, putDataReq).setResultCallback(
+                new ResultCallback<DataApi.DataItemResult>() {
+                    @Override
+                    public void onResult(DataApi.DataItemResult result) {
+                        if (result.getStatus().isSuccess()) {
+                            mPreferences.setSentVersion(saved.version);
+                            Log.d(LOG_TAG, "Sent " + saved);
+                        } else {
+                            Log.d(LOG_TAG, "Could not send " + saved + ", retried once connected");
+                        }
+                    }
+                });
+    }
+}
@@ -4,11 +4,18 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Color;
 
+import com.example.android.sunshine.app.common.config.WatchFaceConfig;
+
 public class WatchFaceConfigurationPreferences {
 
     private static final String NAME = "WatchConfigurationPreferences";
     private static final String KEY_BACKGROUND_COLOUR = NAME + ".KEY_BACKGROUND_COLOUR";
     private static final String KEY_DATE_TIME_COLOUR = NAME + ".KEY_DATE_TIME_COLOUR";
+    private static final String KEY_VERSION = NAME + ".KEY_VERSION";
+    private static final String KEY_FLAGS = NAME + ".KEY_FLAGS";
+    private static final String KEY_UNITS = NAME + ".KEY_UNITS";
+    private static final String KEY_LAYOUT = NAME + ".KEY_LAYOUT";
+    private static final String KEY_SENT_VERSION = NAME + ".KEY_SENT_VERSION";
     private static final int DEFAULT_BACKGROUND_COLOUR = Color.parseColor("black");
     private static final int DEFAULT_DATE_TIME_COLOUR = Color.parseColor("white");
 
@@ -31,11 +38,39 @@ public class WatchFaceConfigurationPreferences {
         return preferences.getInt(KEY_DATE_TIME_COLOUR, DEFAULT_DATE_TIME_COLOUR);
     }
 
-    public void setBackgroundColour(int color) {
-        preferences.edit().putInt(KEY_BACKGROUND_COLOUR, color).apply();
+    // Version of the last saved configuration, the watch ignores anything not newer than what it has
+    public long getVersion() {
+        return preferences.getLong(KEY_VERSION, 0);
+    }
+
+    // Version of the last configuration handed to the data layer
+    public long getSentVersion() {
+        return preferences.getLong(KEY_SENT_VERSION, 0);
+    }
+
+    public void setSentVersion(long version) {
+        preferences.edit().putLong(KEY_SENT_VERSION, version).apply();
+    }
+
+    public WatchFaceConfig getConfig() {
+        return new WatchFaceConfig(getVersion(), getBackgroundColour(), getDateAndTimeColour(),
+                preferences.getInt(KEY_FLAGS, WatchFaceConfig.DEFAULT.flags),
+                preferences.getInt(KEY_UNITS, WatchFaceConfig.DEFAULT.units),
+                preferences.getInt(KEY_LAYOUT, WatchFaceConfig.DEFAULT.layout));
     }
 
-    public void setDateAndTimeColour(int color) {
-        preferences.edit().putInt(KEY_DATE_TIME_COLOUR, color).apply();
+    // Save the whole configuration in a single write and return it with its new version. Versions
+    // follow the clock, so they keep growing after the app data is cleared or the app reinstalled
+    public WatchFaceConfig save(WatchFaceConfig config) {
+        WatchFaceConfig saved = config.withVersion(Math.max(getVersion() + 1, System.currentTimeMillis()));
+        preferences.edit()
+                .putInt(KEY_BACKGROUND_COLOUR, saved.backgroundColour)
+                .putInt(KEY_DATE_TIME_COLOUR, saved.dateAndTimeColour)
+                .putInt(KEY_FLAGS, saved.flags)
+                .putInt(KEY_UNITS, saved.units)
+                .putInt(KEY_LAYOUT, saved.layout)
+                .putLong(KEY_VERSION, saved.version)
+                .apply();
+        return saved;
     }
 }
@@ -9,11 +9,8 @@ import android.view.MenuItem;
 import android.view.View;
 
 import com.example.android.sunshine.app.R;
-import com.example.android.sunshine.app.common.Constants;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
 public class WatchSettingsActivity extends AppCompatActivity implements WatchColorSelectDailog.Listener, GoogleApiClient.ConnectionCallbacks,
@@ -27,6 +24,8 @@ public class WatchSettingsActivity extends AppCompatActivity implements WatchCol
     // To synchronize with the data layer API, we have to firstly connect to it through a GoogleApiClient object
     private GoogleApiClient mGoogleApiClient;
     private WatchFaceConfigurationPreferences mWatchFaceConfigurationPreferences;
+    // Batches colour picks into a single save and a single DataItem
+    private WatchFaceConfigTransaction mConfigTransaction;
     private View mBackgroundColourImagePreview;
     private View mDateAndTimeColourImagePreview;
 
@@ -57,12 +56,15 @@ public class WatchSettingsActivity extends AppCompatActivity implements WatchCol
         mBackgroundColourImagePreview = findViewById(R.id.configuration_background_colour_preview);
         mDateAndTimeColourImagePreview = findViewById(R.id.configuration_date_and_time_colour_preview);
         mWatchFaceConfigurationPreferences = WatchFaceConfigurationPreferences.newInstance(this);
+        mBackgroundColourImagePreview.setBackgroundColor(mWatchFaceConfigurationPreferences.getBackgroundColour());
+        mDateAndTimeColourImagePreview.setBackgroundColor(mWatchFaceConfigurationPreferences.getDateAndTimeColour());
 
         mGoogleApiClient = new GoogleApiClient.Builder(this)
                 .addConnectionCallbacks(this)
                 .addOnConnectionFailedListener(this)
                 .addApi(Wearable.API)
                 .build();
+        mConfigTransaction = new WatchFaceConfigTransaction(mWatchFaceConfigurationPreferences, mGoogleApiClient);
     }
 
 
@@ -78,22 +80,18 @@ public class WatchSettingsActivity extends AppCompatActivity implements WatchCol
 
     @Override
     public void onColourSelected(String colour, String tag) {
-        PutDataMapRequest putDataMapReq = PutDataMapRequest.create(Constants.WATCH_FACE_SETTINGS_PATH);
+        // Parsed once here, the watch receives ARGB values
+        int parsedColour = Color.parseColor(colour);
 
         if (TAG_BACKGROUND_COLOUR_CHOOSER.equals(tag)) {
-            mBackgroundColourImagePreview.setBackgroundColor(Color.parseColor(colour));
-            mWatchFaceConfigurationPreferences.setBackgroundColour(Color.parseColor(colour));
-            putDataMapReq.getDataMap().putString("KEY_BACKGROUND_COLOUR", colour);
+            mBackgroundColourImagePreview.setBackgroundColor(parsedColour);
+            mConfigTransaction.setBackgroundColour(parsedColour);
         } else {
-            mDateAndTimeColourImagePreview.setBackgroundColor(Color.parseColor(colour));
-            mWatchFaceConfigurationPreferences.setBackgroundColour(Color.parseColor(colour));
-            putDataMapReq.getDataMap().putString("KEY_DATE_TIME_COLOUR", colour);
+            mDateAndTimeColourImagePreview.setBackgroundColor(parsedColour);
+            mConfigTransaction.setDateAndTimeColour(parsedColour);
         }
 
         Log.d(LOG_TAG, "onColorSelected" + colour);
-
-        PutDataRequest putDataReq = putDataMapReq.asPutDataRequest();
-        Wearable.DataApi.putDataItem(mGoogleApiClient, putDataReq);
     }
 
     @Override
@@ -104,6 +102,8 @@ public class WatchSettingsActivity extends AppCompatActivity implements WatchCol
 
     @Override
     protected void onStop() {
+        // Do not lose picks made just before leaving the screen
+        mConfigTransaction.flush();
         if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
             mGoogleApiClient.disconnect();
         }
@@ -113,6 +113,7 @@ public class WatchSettingsActivity extends AppCompatActivity implements WatchCol
     @Override
     public void onConnected(Bundle bundle) {
         Log.d(LOG_TAG, "onConnected");
+        mConfigTransaction.onConnected();
     }
 
     @Override
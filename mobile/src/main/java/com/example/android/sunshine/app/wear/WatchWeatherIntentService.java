@@ -2,15 +2,13 @@ package com.example.android.sunshine.app.wear;
 
 import android.app.IntentService;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
-import com.example.android.sunshine.app.Utility;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.common.Constants;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.PendingResult;
@@ -24,12 +22,6 @@ public class WatchWeatherIntentService extends IntentService {
     private static String LOG_TAG = WatchWeatherIntentService.class.getSimpleName();
 
     public static final String ACTION_SEND_WEAR_DATA = "com.example.android.sunshine.app.ACTION_SEND_WEAR_DATA";
-    // Weather Key constants
-    private static final String WEATHER_PATH = "/weather";
-    private static final String WEATHER_KEY_TEMP_MAX = "weather_temp_max";
-    private static final String WEATHER_KEY_TEMP_MIN = "weather_temp_min";
-    private static final String WEATHER_KEY_ID = "weather_id";
-
     // Use this to connect to the wear
     private GoogleApiClient mGoogleApiClient;
 
@@ -77,18 +69,17 @@ public class WatchWeatherIntentService extends IntentService {
     }
 
     private void refreshWearableData() {
-        // Acquire the cursor
-        Cursor cursor = getTodaysWeather();
-
-        if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID));
-            String maxTemp = Utility.formatTemperature(this, cursor.getDouble(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP)));
-            String minTemp = Utility.formatTemperature(this, cursor.getDouble(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP)));
-            final PutDataMapRequest requestMap = PutDataMapRequest.create(WEATHER_PATH);
-            requestMap.getDataMap().putInt(WEATHER_KEY_ID, weatherId);
-            requestMap.getDataMap().putString(WEATHER_KEY_TEMP_MAX, maxTemp);
-            requestMap.getDataMap().putString(WEATHER_KEY_TEMP_MIN, minTemp);
-            Log.d(LOG_TAG, "weatherId: " + weatherId + " maxTemp: " + maxTemp + " minTemp: " + minTemp);
+        // Publish today's weather, the version only changes if the weather did
+        WeatherSnapshot snapshot = WearWeatherSync.publishToday(this);
+
+        if (!snapshot.isEmpty()) {
+            final PutDataMapRequest requestMap = PutDataMapRequest.create(Constants.WEATHER_DATA_PATH);
+            requestMap.getDataMap().putLong(Constants.WEATHER_KEY_VERSION, snapshot.version);
+            requestMap.getDataMap().putInt(Constants.WEATHER_KEY_ID, snapshot.weatherId);
+            requestMap.getDataMap().putFloat(Constants.WEATHER_KEY_TEMP_MAX, snapshot.high);
+            requestMap.getDataMap().putFloat(Constants.WEATHER_KEY_TEMP_MIN, snapshot.low);
+            requestMap.getDataMap().putBoolean(Constants.WEATHER_KEY_METRIC, snapshot.metric);
+            Log.d(LOG_TAG, "Pushing " + snapshot);
 
             Thread thread = new Thread(new Runnable() {
                 @Override
@@ -99,23 +90,6 @@ public class WatchWeatherIntentService extends IntentService {
             });
             thread.start();
         }
-        cursor.close();
-    }
-
-    private Cursor getTodaysWeather() {
-        // Query Weather location
-        String locationQuery = Utility.getPreferredLocation(this);
-        // Query  Weather Uri
-        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-        // Query Projection
-        String projection[] = new String[]{WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-                WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-                WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
-        };
-        // Acquire the cursor
-        Cursor cursor = getContentResolver().query(weatherUri, projection, null, null, null);
-
-        return cursor;
     }
 
     @Override
@@ -1,128 +1,201 @@
 package com.example.android.sunshine.app.wear;
 
-import android.database.Cursor;
-import android.net.Uri;
-import android.os.AsyncTask;
+import android.os.SystemClock;
 import android.util.Log;
 
-import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.common.Constants;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
+import com.example.android.sunshine.app.common.sync.WeatherSyncProtocol;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.wearable.DataMap;
 import com.google.android.gms.wearable.MessageApi;
 import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers weather requests of the watch.
+ * <p/>
+ * Requests are handed to a single background thread with a bounded queue. While a request of a node
+ * is still queued, further ones from the same node on the same path are folded into it, so a watch
+ * that reconnects often costs one reply instead of a pile of them. Replies use the published
+ * snapshot and one client that stays connected for the life of the service.
+ */
 public class WearWeatherListenerService extends WearableListenerService {
 
     // Logging Identifier for the class
     private static String LOG_TAG = WearWeatherListenerService.class.getSimpleName();
 
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+    // Distinct nodes and paths waiting at once, a single watch needs two at most
+    private static final int MAX_QUEUED_REQUESTS = 8;
+    // Re-read the provider past this age, so a reply never carries yesterday's weather for long
+    private static final long SNAPSHOT_MAX_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Map<String, PendingRequest> mPendingRequests = new HashMap<>();
+    private ThreadPoolExecutor mExecutor;
+    // Only touched on the executor thread
     private GoogleApiClient mGoogleApiClient;
-    private String mPeerId;
 
-    @Override
-    public void onMessageReceived(MessageEvent messageEvent) {
-        super.onMessageReceived(messageEvent);
-        mPeerId = messageEvent.getSourceNodeId();
-        Log.d(LOG_TAG, "MessageReceived: " + messageEvent.getPath());
-        if (messageEvent.getPath().equals(Constants.WEATHER_SERVICE_REQUIRE_PATH)) {
-            startTask();
+    // Reply latency, from the first coalesced request to the reply being sent
+    private static long sRepliesSent;
+    private static long sRequestsCoalesced;
+    private static long sTotalLatencyMs;
+    private static long sMaxLatencyMs;
+
+    private static class PendingRequest {
+        final String nodeId;
+        final String path;
+        final long receivedElapsedMs;
+        byte[] payload;
+
+        PendingRequest(String nodeId, String path, byte[] payload, long receivedElapsedMs) {
+            this.nodeId = nodeId;
+            this.path = path;
+            this.payload = payload;
+            this.receivedElapsedMs = receivedElapsedMs;
         }
     }
 
-    private void startTask() {
-        Log.d(LOG_TAG, "Start Weather AsyncTask");
-        mGoogleApiClient = new GoogleApiClient.Builder(this).addApi(Wearable.API).build();
-
-        Task task = new Task();
-        task.execute();
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        mExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUED_REQUESTS));
     }
 
-    private class Task extends AsyncTask {
-
-        @Override
-        protected Object doInBackground(Object[] params) {
-            try {
-                Log.d(LOG_TAG, "Task Running");
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        super.onMessageReceived(messageEvent);
+        String path = messageEvent.getPath();
+        Log.d(LOG_TAG, "MessageReceived: " + path);
+        if (Constants.WEATHER_SERVICE_REQUIRE_PATH.equals(path) || WeatherSyncProtocol.REQUEST_PATH.equals(path)) {
+            enqueue(messageEvent.getSourceNodeId(), path, messageEvent.getData());
+        }
+    }
 
-                if (!mGoogleApiClient.isConnected()) {
-                    mGoogleApiClient.connect();
+    @Override
+    public void onDestroy() {
+        // Let queued replies go out, then drop the connection on the same thread
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (mGoogleApiClient != null) {
+                        mGoogleApiClient.disconnect();
+                        mGoogleApiClient = null;
+                    }
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(LOG_TAG, "Request queue full while stopping, connection closed by the system");
+        }
+        mExecutor.shutdown();
+        super.onDestroy();
+    }
 
-                DataMap config = new DataMap();
-                // Acquire the cursor
-                Cursor cursor = getTodaysWeather();
-
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID));
-                    String maxTemp = Utility.formatTemperature(WearWeatherListenerService.this, cursor.getDouble(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP)));
-                    String minTemp = Utility.formatTemperature(WearWeatherListenerService.this, cursor.getDouble(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP)));
-
-                    Log.d(LOG_TAG, "weatherId: " + weatherId + " maxTemp: " + maxTemp + " minTemp: " + minTemp);
-
-                    // Real weather data
-                    config.putInt(Constants.WEATHER_KEY_ID, weatherId);
-                    config.putString(Constants.WEATHER_KEY_TEMP_MAX, maxTemp);
-                    config.putString(Constants.WEATHER_KEY_TEMP_MIN, minTemp);
-
-                    // Fake weather data
-                    //Random random = new Random();
-                    //config.putInt("Temperature",random.nextInt(100));
-                    //config.putString("Condition", new String[]{"clear","rain","snow","thunder","cloudy"}[random.nextInt
-                    // (4)]);
+    private void enqueue(String nodeId, String path, byte[] payload) {
+        final String key = nodeId + path;
+        final PendingRequest request;
+        synchronized (mPendingRequests) {
+            PendingRequest pending = mPendingRequests.get(key);
+            if (pending != null) {
+                // The queued reply will answer this one too, with the latest version the watch sent
+                pending.payload = payload;
+                sRequestsCoalesced++;
+                return;
+            }
+            request = new PendingRequest(nodeId, path, payload, SystemClock.elapsedRealtime());
+            mPendingRequests.put(key, request);
+        }
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (mPendingRequests) {
+                        mPendingRequests.remove(key);
+                    }
+                    handleRequest(request);
                 }
-                cursor.close();
-
-                Wearable.MessageApi.sendMessage(mGoogleApiClient, mPeerId, Constants.WEATHER_DATA_PATH, config.toByteArray())
-                        .setResultCallback(
-                                new ResultCallback<MessageApi.SendMessageResult>() {
-                                    @Override
-                                    public void onResult(MessageApi.SendMessageResult sendMessageResult) {
-                                        Log.d(LOG_TAG, "SendUpdateMessage: " + sendMessageResult.getStatus());
-                                    }
-                                }
-                        );
-            } catch (Exception e) {
-                Log.d(LOG_TAG, "Task Fail: " + e);
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (mPendingRequests) {
+                mPendingRequests.remove(key);
             }
-            return null;
+            Log.d(LOG_TAG, "Request queue full, dropping request from " + nodeId);
         }
     }
 
-    private void refreshWearableData() {
-        // Acquire the cursor
-        Cursor cursor = getTodaysWeather();
-
-        if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID));
-            String maxTemp = Utility.formatTemperature(this, cursor.getDouble(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP)));
-            String minTemp = Utility.formatTemperature(this, cursor.getDouble(cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP)));
+    // Runs on the executor thread, so it may block on the connection and the provider
+    private void handleRequest(PendingRequest request) {
+        byte[] payload;
+        synchronized (mPendingRequests) {
+            payload = request.payload;
+        }
+        WeatherSnapshot snapshot = WearWeatherSync.getSnapshot(this, SNAPSHOT_MAX_AGE_MS);
 
-            Log.d(LOG_TAG, "weatherId: " + weatherId + " maxTemp: " + maxTemp + " minTemp: " + minTemp);
+        String replyPath;
+        byte[] reply;
+        if (WeatherSyncProtocol.REQUEST_PATH.equals(request.path)) {
+            try {
+                reply = WearWeatherSync.getServer().handleRequest(payload);
+            } catch (IllegalArgumentException e) {
+                Log.d(LOG_TAG, "Ignoring weather sync request: " + e.getMessage());
+                return;
+            }
+            replyPath = WeatherSyncProtocol.RESPONSE_PATH;
+        } else {
+            reply = toLegacyDataMap(snapshot).toByteArray();
+            replyPath = Constants.WEATHER_DATA_PATH;
+        }
 
+        if (!ensureConnected()) {
+            Log.d(LOG_TAG, "Could not connect to reply to " + request.path);
+            return;
+        }
+        MessageApi.SendMessageResult result = Wearable.MessageApi
+                .sendMessage(mGoogleApiClient, request.nodeId, replyPath, reply)
+                .await(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        recordLatency(SystemClock.elapsedRealtime() - request.receivedElapsedMs);
+        Log.d(LOG_TAG, "Weather reply on " + replyPath + " (" + reply.length + " bytes): " + result.getStatus());
+    }
 
+    private boolean ensureConnected() {
+        if (mGoogleApiClient == null) {
+            mGoogleApiClient = new GoogleApiClient.Builder(this).addApi(Wearable.API).build();
         }
-        cursor.close();
+        return mGoogleApiClient.isConnected()
+                || mGoogleApiClient.blockingConnect(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccess();
     }
 
-    private Cursor getTodaysWeather() {
-        // Query Weather location
-        String locationQuery = Utility.getPreferredLocation(this);
-        // Query  Weather Uri
-        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-        // Query Projection
-        String projection[] = new String[]{WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-                WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-                WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
-        };
-        // Acquire the cursor
-        Cursor cursor = getContentResolver().query(weatherUri, projection, null, null, null);
-
-        return cursor;
+    // Reply format of watch faces that still ask on WEATHER_SERVICE_REQUIRE_PATH
+    private static DataMap toLegacyDataMap(WeatherSnapshot snapshot) {
+        DataMap config = new DataMap();
+        if (!snapshot.isEmpty()) {
+            // Real weather data, raw Celsius values formatted on the watch
+            config.putLong(Constants.WEATHER_KEY_VERSION, snapshot.version);
+            config.putInt(Constants.WEATHER_KEY_ID, snapshot.weatherId);
+            config.putFloat(Constants.WEATHER_KEY_TEMP_MAX, snapshot.high);
+            config.putFloat(Constants.WEATHER_KEY_TEMP_MIN, snapshot.low);
+            config.putBoolean(Constants.WEATHER_KEY_METRIC, snapshot.metric);
+        }
+        return config;
     }
 
+    private static synchronized void recordLatency(long latencyMs) {
+        sRepliesSent++;
+        sTotalLatencyMs += latencyMs;
+        sMaxLatencyMs = Math.max(sMaxLatencyMs, latencyMs);
+        Log.d(LOG_TAG, "Reply latency " + latencyMs + "ms (avg " + (sTotalLatencyMs / sRepliesSent)
+                + "ms, max " + sMaxLatencyMs + "ms, " + sRepliesSent + " replies, "
+                + sRequestsCoalesced + " requests coalesced)");
+    }
 }
@@ -0,0 +1,78 @@
+package com.example.android.sunshine.app.wear;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
+import com.example.android.sunshine.app.common.sync.WeatherSyncServer;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Process wide holder of the phone side of the weather sync protocol, shared by the services that
+ * push weather to the watch and the one answering its requests, so both hand out the same versions.
+ */
+public class WearWeatherSync {
+
+    private static final String[] TODAY_PROJECTION = new String[]{
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    };
+
+    private static final int COL_WEATHER_ID = 0;
+    private static final int COL_MAX_TEMP = 1;
+    private static final int COL_MIN_TEMP = 2;
+
+    private static final WeatherSyncServer sServer = new WeatherSyncServer(System.currentTimeMillis());
+    // When publishToday last read the provider, in elapsed realtime
+    private static volatile long sLastPublishElapsedMs;
+
+    private WearWeatherSync() {
+    }
+
+    public static WeatherSyncServer getServer() {
+        return sServer;
+    }
+
+    /**
+     * Read today's weather from the provider and publish it to the sync server. Must not be called
+     * on the main thread.
+     *
+     * @return the current snapshot, unchanged (same version) if the weather did not change
+     */
+    public static WeatherSnapshot publishToday(Context context) {
+        sLastPublishElapsedMs = SystemClock.elapsedRealtime();
+        String locationQuery = Utility.getPreferredLocation(context);
+        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
+        Cursor cursor = context.getContentResolver().query(weatherUri, TODAY_PROJECTION, null, null, null);
+        if (cursor == null) {
+            return sServer.getCurrent();
+        }
+        try {
+            if (cursor.moveToFirst()) {
+                // Raw Celsius values and the unit preference, the watch does the formatting
+                return sServer.publish(cursor.getInt(COL_WEATHER_ID), cursor.getFloat(COL_MAX_TEMP),
+                        cursor.getFloat(COL_MIN_TEMP), Utility.isMetric(context));
+            }
+            return sServer.getCurrent();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * The published snapshot, re-read from the provider only when nothing was published yet or the
+     * last read is older than maxAgeMs. Every sync and units change publishes already, so watch
+     * requests are normally answered without a query. Must not be called on the main thread.
+     */
+    public static WeatherSnapshot getSnapshot(Context context, long maxAgeMs) {
+        WeatherSnapshot current = sServer.getCurrent();
+        if (current.isEmpty() || SystemClock.elapsedRealtime() - sLastPublishElapsedMs > maxAgeMs) {
+            return publishToday(context);
+        }
+        return current;
+    }
+}
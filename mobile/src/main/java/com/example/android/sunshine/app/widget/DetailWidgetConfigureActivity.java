@@ -0,0 +1,107 @@
+package com.example.android.sunshine.app.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Intent;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.v4.app.LoaderManager;
+import android.support.v4.content.CursorLoader;
+import android.support.v4.content.Loader;
+import android.support.v4.widget.SimpleCursorAdapter;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+
+/**
+ * Lets the user choose which of the saved locations a detail widget shows, or the location from
+ * the settings.
+ */
+public class DetailWidgetConfigureActivity extends AppCompatActivity
+        implements LoaderManager.LoaderCallbacks<Cursor> {
+
+    private static final int LOCATION_LOADER = 0;
+
+    private static final String[] LOCATION_COLUMNS = {
+            WeatherContract.LocationEntry._ID,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING
+    };
+    // these indices must match the projection
+    private static final int COL_LOCATION_SETTING = 2;
+
+    private int mAppWidgetId = AppWidgetManager.INVALID_APPWIDGET_ID;
+    private SimpleCursorAdapter mAdapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // Backing out does not add the widget
+        setResult(RESULT_CANCELED);
+        Bundle extras = getIntent().getExtras();
+        if (extras != null) {
+            mAppWidgetId = extras.getInt(AppWidgetManager.EXTRA_APPWIDGET_ID,
+                    AppWidgetManager.INVALID_APPWIDGET_ID);
+        }
+        if (mAppWidgetId == AppWidgetManager.INVALID_APPWIDGET_ID) {
+            finish();
+            return;
+        }
+        setContentView(R.layout.activity_widget_configure);
+
+        ListView listView = (ListView) findViewById(R.id.widget_configure_list);
+        TextView header = (TextView) getLayoutInflater()
+                .inflate(android.R.layout.simple_list_item_1, listView, false);
+        header.setText(R.string.widget_location_from_settings);
+        listView.addHeaderView(header);
+        mAdapter = new SimpleCursorAdapter(this, android.R.layout.simple_list_item_2, null,
+                new String[]{WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+                        WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING},
+                new int[]{android.R.id.text1, android.R.id.text2}, 0);
+        listView.setAdapter(mAdapter);
+        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                Cursor cursor = (Cursor) parent.getItemAtPosition(position);
+                // The header follows the settings
+                choose(cursor == null ? null : cursor.getString(COL_LOCATION_SETTING));
+            }
+        });
+        getSupportLoaderManager().initLoader(LOCATION_LOADER, null, this);
+    }
+
+    private void choose(String location) {
+        DetailWidgetLocations.setLocation(this, mAppWidgetId, location);
+        if (location != null) {
+            // Its stored forecast may be days old, the sync fetches every configured location
+            SunshineSyncAdapter.syncImmediately(this);
+        }
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
+        DetailWidgetProvider.updateWidget(this, appWidgetManager, mAppWidgetId);
+        // The widget may have been configured before, its factory reads the new location
+        appWidgetManager.notifyAppWidgetViewDataChanged(mAppWidgetId, R.id.widget_list);
+        setResult(RESULT_OK, new Intent().putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, mAppWidgetId));
+        finish();
+    }
+
+    @Override
+    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
+        return new CursorLoader(this, WeatherContract.LocationEntry.CONTENT_URI, LOCATION_COLUMNS,
+                null, null, WeatherContract.LocationEntry.COLUMN_CITY_NAME + " ASC");
+    }
+
+    @Override
+    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
+        mAdapter.swapCursor(data);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<Cursor> loader) {
+        mAdapter.swapCursor(null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.android.sunshine.app.Utility;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The location each detail widget was configured to. Widgets that were not configured show the
+ * location from the settings. The sync also fetches every configured location, see
+ * {@link #getConfiguredLocations(Context)}.
+ */
+public class DetailWidgetLocations {
+
+    private static final String PREFS_NAME = "detail_widgets";
+    private static final String KEY_LOCATION = "location_";
+
+    private DetailWidgetLocations() {
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return the location setting the widget shows
+     */
+    public static String getLocation(Context context, int appWidgetId) {
+        String location = getPreferences(context).getString(KEY_LOCATION + appWidgetId, null);
+        return location != null ? location : Utility.getPreferredLocation(context);
+    }
+
+    /**
+     * @param location a location setting, or null to follow the location from the settings
+     */
+    public static void setLocation(Context context, int appWidgetId, String location) {
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+        if (location == null) {
+            editor.remove(KEY_LOCATION + appWidgetId);
+        } else {
+            editor.putString(KEY_LOCATION + appWidgetId, location);
+        }
+        editor.apply();
+    }
+
+    /**
+     * @return the locations widgets were configured to, without the ones following the settings
+     */
+    public static Set<String> getConfiguredLocations(Context context) {
+        Set<String> locations = new HashSet<>();
+        for (Map.Entry<String, ?> entry : getPreferences(context).getAll().entrySet()) {
+            if (entry.getKey().startsWith(KEY_LOCATION) && entry.getValue() instanceof String) {
+                locations.add((String) entry.getValue());
+            }
+        }
+        return locations;
+    }
+
+    public static void remove(Context context, int[] appWidgetIds) {
+        SharedPreferences.Editor editor = getPreferences(context).edit();
+        for (int appWidgetId : appWidgetIds) {
+            editor.remove(KEY_LOCATION + appWidgetId);
+        }
+        editor.apply();
+    }
+}
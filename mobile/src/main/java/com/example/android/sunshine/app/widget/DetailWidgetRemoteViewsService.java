@@ -1,21 +1,25 @@
 package com.example.android.sunshine.app.widget;
 
 import android.annotation.TargetApi;
+import android.appwidget.AppWidgetManager;
 import android.content.Intent;
-import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.net.Uri;
-import android.os.Binder;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.widget.AdapterView;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.request.target.Target;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.ArtCache;
+import com.example.android.sunshine.app.common.WeatherConditions;
 import com.example.android.sunshine.app.data.WeatherContract;
 
 import java.util.concurrent.ExecutionException;
@@ -26,104 +30,90 @@ import java.util.concurrent.ExecutionException;
 @TargetApi(Build.VERSION_CODES.HONEYCOMB)
 public class DetailWidgetRemoteViewsService extends RemoteViewsService {
     public final String LOG_TAG = DetailWidgetRemoteViewsService.class.getSimpleName();
-    private static final String[] FORECAST_COLUMNS = {
-            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
-            WeatherContract.WeatherEntry.COLUMN_DATE,
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
-    };
-    // these indices must match the projection
-    static final int INDEX_WEATHER_ID = 0;
-    static final int INDEX_WEATHER_DATE = 1;
-    static final int INDEX_WEATHER_CONDITION_ID = 2;
-    static final int INDEX_WEATHER_DESC = 3;
-    static final int INDEX_WEATHER_MAX_TEMP = 4;
-    static final int INDEX_WEATHER_MIN_TEMP = 5;
+    // Bitmap bytes the rows of a refresh may hold at once, rows beyond it use the icon resource
+    private static final long BITMAP_BUDGET_BYTES = 512 * 1024;
 
     @Override
     public RemoteViewsFactory onGetViewFactory(Intent intent) {
+        final int appWidgetId = intent.getIntExtra(AppWidgetManager.EXTRA_APPWIDGET_ID,
+                AppWidgetManager.INVALID_APPWIDGET_ID);
         return new RemoteViewsFactory() {
-            private Cursor data = null;
+            // Shared with the other widgets of the same location
+            private WidgetForecasts.Forecast data = null;
+            private int iconSize;
+
+            // Per refresh, reported when the next one starts
+            private final SparseArray<Bitmap> artOfRefresh = new SparseArray<>();
+            private long marshalledBytes;
+            private int marshalledRows;
+            // Bitmap bytes of every row built with a bitmap, so a row scrolled back into view
+            // replaces its own charge instead of adding to it
+            private final SparseIntArray bitmapBytesOfRow = new SparseIntArray();
+            private long bitmapBytes;
+            private long viewNanos;
+            private long maxViewNanos;
 
             @Override
             public void onCreate() {
-                // Nothing to do
+                iconSize = getResources().getDimensionPixelSize(R.dimen.list_icon);
             }
 
             @Override
             public void onDataSetChanged() {
-                if (data != null) {
-                    data.close();
-                }
-                // This method is called by the app hosting the widget (e.g., the launcher)
-                // However, our ContentProvider is not exported so it doesn't have access to the
-                // data. Therefore we need to clear (and finally restore) the calling identity so
-                // that calls use our process and permission
-                final long identityToken = Binder.clearCallingIdentity();
-                String location = Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
-                Uri weatherForLocationUri = WeatherContract.WeatherEntry
-                        .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
-                data = getContentResolver().query(weatherForLocationUri,
-                        FORECAST_COLUMNS,
-                        null,
-                        null,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-                Binder.restoreCallingIdentity(identityToken);
+                reportRefresh();
+                String location = DetailWidgetLocations.getLocation(
+                        DetailWidgetRemoteViewsService.this, appWidgetId);
+                data = WidgetForecasts.get(DetailWidgetRemoteViewsService.this, location);
             }
 
             @Override
             public void onDestroy() {
-                if (data != null) {
-                    data.close();
-                    data = null;
-                }
+                reportRefresh();
+                data = null;
             }
 
             @Override
             public int getCount() {
-                return data == null ? 0 : data.getCount();
+                return data == null ? 0 : data.count;
             }
 
             @Override
             public RemoteViews getViewAt(int position) {
                 if (position == AdapterView.INVALID_POSITION ||
-                        data == null || !data.moveToPosition(position)) {
+                        data == null || position >= data.count) {
                     return null;
                 }
+                long start = SystemClock.elapsedRealtimeNanos();
                 RemoteViews views = new RemoteViews(getPackageName(),
                         R.layout.widget_detail_list_item);
-                int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
+                int weatherId = data.weatherIds[position];
                 int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
                 Bitmap weatherArtImage = null;
-                if ( !Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this) ) {
-                    String weatherArtResourceUrl = Utility.getArtUrlForWeatherCondition(
-                            DetailWidgetRemoteViewsService.this, weatherId);
-                    try {
-                        weatherArtImage = Glide.with(DetailWidgetRemoteViewsService.this)
-                                .load(weatherArtResourceUrl)
-                                .asBitmap()
-                                .error(weatherArtResourceId)
-                                .into(Target.SIZE_ORIGINAL, Target.SIZE_ORIGINAL).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + weatherArtResourceUrl, e);
-                    }
+                int charged = bitmapBytesOfRow.get(position);
+                // Every row parcels its own copy, past the budget the launcher gets the resource id
+                // instead, so the art is not even loaded then
+                if ( !Utility.usingLocalGraphics(DetailWidgetRemoteViewsService.this)
+                        && bitmapBytes - charged + getArtBytes(weatherId) <= BITMAP_BUDGET_BYTES) {
+                    weatherArtImage = getArt(weatherId, weatherArtResourceId);
                 }
-                String description = data.getString(INDEX_WEATHER_DESC);
-                long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
+                String description = data.descriptions[position];
+                long dateInMillis = data.dates[position];
                 String formattedDate = Utility.getFriendlyDayString(
                         DetailWidgetRemoteViewsService.this, dateInMillis, false);
-                double maxTemp = data.getDouble(INDEX_WEATHER_MAX_TEMP);
-                double minTemp = data.getDouble(INDEX_WEATHER_MIN_TEMP);
+                double maxTemp = data.highs[position];
+                double minTemp = data.lows[position];
                 String formattedMaxTemperature =
                         Utility.formatTemperature(DetailWidgetRemoteViewsService.this, maxTemp);
                 String formattedMinTemperature =
                         Utility.formatTemperature(DetailWidgetRemoteViewsService.this, minTemp);
+                bitmapBytes -= charged;
                 if (weatherArtImage != null) {
                     views.setImageViewBitmap(R.id.widget_icon, weatherArtImage);
+                    bitmapBytes += weatherArtImage.getByteCount();
+                    bitmapBytesOfRow.put(position, weatherArtImage.getByteCount());
                 } else {
                     views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+                    bitmapBytesOfRow.delete(position);
                 }
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
                     setRemoteContentDescription(views, description);
@@ -134,16 +124,82 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
                 views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
 
                 final Intent fillInIntent = new Intent();
-                String locationSetting =
-                        Utility.getPreferredLocation(DetailWidgetRemoteViewsService.this);
                 Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
-                        locationSetting,
+                        data.location,
                         dateInMillis);
                 fillInIntent.setData(weatherUri);
                 views.setOnClickFillInIntent(R.id.widget_list_item, fillInIntent);
+                // Without the measuring below
+                long nanos = SystemClock.elapsedRealtimeNanos() - start;
+                viewNanos += nanos;
+                maxViewNanos = Math.max(maxViewNanos, nanos);
+                marshalledBytes += marshalledSize(views);
+                marshalledRows++;
                 return views;
             }
 
+            // Bytes of the art of a row, before it is loaded at most an ARGB_8888 bitmap of the icon size
+            private int getArtBytes(int weatherId) {
+                Bitmap weatherArtImage = artOfRefresh.get(WeatherConditions.getArt(weatherId));
+                return weatherArtImage != null ? weatherArtImage.getByteCount() : iconSize * iconSize * 4;
+            }
+
+            // Art at the size of the icon view, shared by the rows of one refresh with the same art
+            private Bitmap getArt(int weatherId, int weatherArtResourceId) {
+                int art = WeatherConditions.getArt(weatherId);
+                Bitmap weatherArtImage = artOfRefresh.get(art);
+                if (weatherArtImage != null) {
+                    return weatherArtImage;
+                }
+                weatherArtImage = ArtCache.get(DetailWidgetRemoteViewsService.this)
+                        .getBitmap(weatherId, iconSize, iconSize);
+                if (weatherArtImage == null) {
+                    String weatherArtResourceUrl = Utility.getArtUrlForWeatherCondition(
+                            DetailWidgetRemoteViewsService.this, weatherId);
+                    try {
+                        weatherArtImage = Glide.with(DetailWidgetRemoteViewsService.this)
+                                .load(weatherArtResourceUrl)
+                                .asBitmap()
+                                .error(weatherArtResourceId)
+                                .fitCenter()
+                                .into(iconSize, iconSize).get();
+                    } catch (InterruptedException | ExecutionException e) {
+                        Log.e(LOG_TAG, "Error retrieving large icon from " + weatherArtResourceUrl, e);
+                    }
+                }
+                if (weatherArtImage != null) {
+                    artOfRefresh.put(art, weatherArtImage);
+                }
+                return weatherArtImage;
+            }
+
+            // Bytes the launcher receives for a row
+            private int marshalledSize(RemoteViews views) {
+                Parcel parcel = Parcel.obtain();
+                try {
+                    views.writeToParcel(parcel, 0);
+                    return parcel.dataSize();
+                } finally {
+                    parcel.recycle();
+                }
+            }
+
+            private void reportRefresh() {
+                if (marshalledRows > 0) {
+                    Log.d(LOG_TAG, "Refresh marshalled " + marshalledBytes + " bytes for "
+                            + marshalledRows + " rows, " + bitmapBytesOfRow.size() + " with bitmaps of "
+                            + bitmapBytes + " bytes, getViewAt took " + viewNanos / marshalledRows / 1000
+                            + "us per row and " + maxViewNanos / 1000 + "us at most");
+                }
+                marshalledBytes = 0;
+                marshalledRows = 0;
+                bitmapBytes = 0;
+                bitmapBytesOfRow.clear();
+                viewNanos = 0;
+                maxViewNanos = 0;
+                artOfRefresh.clear();
+            }
+
             @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
             private void setRemoteContentDescription(RemoteViews views, String description) {
                 views.setContentDescription(R.id.widget_icon, description);
@@ -161,8 +217,8 @@ public class DetailWidgetRemoteViewsService extends RemoteViewsService {
 
             @Override
             public long getItemId(int position) {
-                if (data.moveToPosition(position))
-                    return data.getLong(INDEX_WEATHER_ID);
+                if (data != null && position < data.count)
+                    return data.ids[position];
                 return position;
             }
 
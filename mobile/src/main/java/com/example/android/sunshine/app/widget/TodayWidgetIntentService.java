@@ -17,19 +17,14 @@ package com.example.android.sunshine.app.widget;
 
 import android.annotation.TargetApi;
 import android.app.IntentService;
-import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.content.ComponentName;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
-import android.os.Bundle;
-import android.util.DisplayMetrics;
-import android.util.TypedValue;
 import android.widget.RemoteViews;
 
-import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
@@ -50,6 +45,9 @@ public class TodayWidgetIntentService extends IntentService {
     private static final int INDEX_MAX_TEMP = 2;
     private static final int INDEX_MIN_TEMP = 3;
 
+    // Set by the provider when the launcher asked for the widgets, they get a full update
+    public static final String EXTRA_FORCE_FULL_UPDATE = "force_full_update";
+
     public TodayWidgetIntentService() {
         super("TodayWidgetIntentService");
     }
@@ -85,63 +83,61 @@ public class TodayWidgetIntentService extends IntentService {
         String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
         data.close();
 
+        WidgetUpdateTracker tracker = WidgetUpdateTracker.getInstance();
+        if (intent != null && intent.getBooleanExtra(EXTRA_FORCE_FULL_UPDATE, false)) {
+            tracker.forget(appWidgetIds);
+        }
+        // The click intent is the same for every update, the icon and its description are not
+        int viewsFingerprint = 31 * weatherArtResourceId + description.hashCode();
+        int textFingerprint = description.hashCode();
+        textFingerprint = 31 * textFingerprint + formattedMaxTemperature.hashCode();
+        textFingerprint = 31 * textFingerprint + formattedMinTemperature.hashCode();
+        int avoided = 0;
+        int partial = 0;
+        int full = 0;
+
+        TodayWidgetLayouts layouts = TodayWidgetLayouts.get(this);
+
         // Perform this loop procedure for each Today widget
         for (int appWidgetId : appWidgetIds) {
-            // Find the correct layout based on the widget's width
-            int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId);
-            int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
-            int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
-            int layoutId;
-            if (widgetWidth >= largeWidth) {
-                layoutId = R.layout.widget_today_large;
-            } else if (widgetWidth >= defaultWidth) {
-                layoutId = R.layout.widget_today;
-            } else {
-                layoutId = R.layout.widget_today_small;
+            // The layout chosen for the widget's width
+            int layoutId = layouts.getLayout(appWidgetManager, appWidgetId);
+            int push = tracker.decide(appWidgetId, layoutId, viewsFingerprint, textFingerprint);
+            if (push == WidgetUpdateTracker.PUSH_NONE) {
+                // The launcher already shows this
+                avoided++;
+                continue;
+            }
+            if (push == WidgetUpdateTracker.PUSH_PARTIAL) {
+                // Only the text changed, the rest of the views the launcher has stays as it is
+                RemoteViews views = new RemoteViews(getPackageName(), layoutId);
+                setRemoteText(views, description, formattedMaxTemperature, formattedMinTemperature);
+                appWidgetManager.partiallyUpdateAppWidget(appWidgetId, views);
+                partial++;
+                continue;
             }
-            RemoteViews views = new RemoteViews(getPackageName(), layoutId);
 
-            // Add the data to the RemoteViews
+            // Add the data to a copy of the layout's template, which launches MainActivity
+            RemoteViews views = layouts.newViews(layoutId);
             views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
             // Content Descriptions for RemoteViews were only added in ICS MR1
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
                 setRemoteContentDescription(views, description);
             }
-            views.setTextViewText(R.id.widget_description, description);
-            views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
-            views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
-
-            // Create an Intent to launch MainActivity
-            Intent launchIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
-            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+            setRemoteText(views, description, formattedMaxTemperature, formattedMinTemperature);
 
             // Tell the AppWidgetManager to perform an update on the current app widget
             appWidgetManager.updateAppWidget(appWidgetId, views);
+            full++;
         }
+        tracker.record(this, avoided, partial, full);
     }
 
-    private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId) {
-        // Prior to Jelly Bean, widgets were always their default size
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-            return getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
-        }
-        // For Jelly Bean and higher devices, widgets can be resized - the current size can be
-        // retrieved from the newly added App Widget Options
-        return getWidgetWidthFromOptions(appWidgetManager, appWidgetId);
-    }
-
-    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
-    private int getWidgetWidthFromOptions(AppWidgetManager appWidgetManager, int appWidgetId) {
-        Bundle options = appWidgetManager.getAppWidgetOptions(appWidgetId);
-        if (options.containsKey(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH)) {
-            int minWidthDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
-            // The width returned is in dp, but we'll convert it to pixels to match the other widths
-            DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
-            return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, minWidthDp,
-                    displayMetrics);
-        }
-        return  getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+    private static void setRemoteText(RemoteViews views, String description,
+                                      String formattedMaxTemperature, String formattedMinTemperature) {
+        views.setTextViewText(R.id.widget_description, description);
+        views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
+        views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
     }
 
     @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
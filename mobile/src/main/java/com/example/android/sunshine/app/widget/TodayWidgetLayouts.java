@@ -0,0 +1,116 @@
+package com.example.android.sunshine.app.widget;
+
+import android.annotation.TargetApi;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.util.TypedValue;
+import android.widget.RemoteViews;
+
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+
+/**
+ * The layout of each Today widget, chosen by its width. The choice is kept per appWidgetId and
+ * only made again when the launcher reports new options, so updates do not read the widget
+ * options and the dimensions for every widget.
+ * <p/>
+ * Each layout also has a template with the views that are the same for every update, updates
+ * fill a copy of it.
+ */
+public class TodayWidgetLayouts {
+
+    private static TodayWidgetLayouts sInstance;
+
+    private final Context mContext;
+    private final int mDefaultWidth;
+    private final int mLargeWidth;
+    private final SparseIntArray mLayouts = new SparseIntArray();
+    private final SparseArray<RemoteViews> mTemplates = new SparseArray<>();
+
+    TodayWidgetLayouts(Context context) {
+        mContext = context.getApplicationContext();
+        mDefaultWidth = mContext.getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+        mLargeWidth = mContext.getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
+    }
+
+    public static synchronized TodayWidgetLayouts get(Context context) {
+        if (sInstance == null) {
+            sInstance = new TodayWidgetLayouts(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return the layout of the widget, read from its options only if it was not chosen before
+     */
+    public synchronized int getLayout(AppWidgetManager appWidgetManager, int appWidgetId) {
+        int layoutId = mLayouts.get(appWidgetId);
+        if (layoutId == 0) {
+            // Prior to Jelly Bean, widgets were always their default size
+            layoutId = Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                    ? R.layout.widget_today
+                    : getLayoutFromOptions(getAppWidgetOptions(appWidgetManager, appWidgetId));
+            mLayouts.put(appWidgetId, layoutId);
+        }
+        return layoutId;
+    }
+
+    /**
+     * Choose the layout of the widget again, call when the launcher reports its new options.
+     */
+    public synchronized void onOptionsChanged(int appWidgetId, Bundle newOptions) {
+        mLayouts.put(appWidgetId, getLayoutFromOptions(newOptions));
+    }
+
+    public synchronized void forget(int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            mLayouts.delete(appWidgetId);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static Bundle getAppWidgetOptions(AppWidgetManager appWidgetManager, int appWidgetId) {
+        return appWidgetManager.getAppWidgetOptions(appWidgetId);
+    }
+
+    private int getLayoutFromOptions(Bundle options) {
+        if (options == null || !options.containsKey(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH)) {
+            return R.layout.widget_today;
+        }
+        int minWidthDp = options.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
+        // The width is in dp, but we'll convert it to pixels to match the other widths
+        return getLayoutForWidth((int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                minWidthDp, mContext.getResources().getDisplayMetrics()));
+    }
+
+    int getLayoutForWidth(int widgetWidth) {
+        if (widgetWidth >= mLargeWidth) {
+            return R.layout.widget_today_large;
+        } else if (widgetWidth >= mDefaultWidth) {
+            return R.layout.widget_today;
+        } else {
+            return R.layout.widget_today_small;
+        }
+    }
+
+    /**
+     * @return a copy of the layout's template, which launches MainActivity when clicked
+     */
+    public synchronized RemoteViews newViews(int layoutId) {
+        RemoteViews template = mTemplates.get(layoutId);
+        if (template == null) {
+            template = new RemoteViews(mContext.getPackageName(), layoutId);
+            Intent launchIntent = new Intent(mContext, MainActivity.class);
+            PendingIntent pendingIntent = PendingIntent.getActivity(mContext, 0, launchIntent, 0);
+            template.setOnClickPendingIntent(R.id.widget, pendingIntent);
+            mTemplates.put(layoutId, template);
+        }
+        return template.clone();
+    }
+}
@@ -34,12 +34,21 @@ public class TodayWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        context.startService(new Intent(context, TodayWidgetIntentService.class));
+        // Asked for by the launcher, which may not have anything of what was pushed before
+        context.startService(new Intent(context, TodayWidgetIntentService.class)
+                .putExtra(TodayWidgetIntentService.EXTRA_FORCE_FULL_UPDATE, true));
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        WidgetUpdateTracker.getInstance().forget(appWidgetIds);
+        TodayWidgetLayouts.get(context).forget(appWidgetIds);
     }
 
     @Override
     public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager,
                                           int appWidgetId, Bundle newOptions) {
+        TodayWidgetLayouts.get(context).onOptionsChanged(appWidgetId, newOptions);
         context.startService(new Intent(context, TodayWidgetIntentService.class));
     }
 
@@ -0,0 +1,141 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Binder;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The forecasts the detail widgets show, read from the provider once per location and shared by
+ * every widget of that location. They are read again after the next sync, see
+ * {@link #invalidate()}, or when the day changed.
+ */
+public class WidgetForecasts {
+
+    private static final String LOG_TAG = WidgetForecasts.class.getSimpleName();
+
+    private static final String[] FORECAST_COLUMNS = {
+            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    };
+    // these indices must match the projection
+    private static final int INDEX_WEATHER_ID = 0;
+    private static final int INDEX_WEATHER_DATE = 1;
+    private static final int INDEX_WEATHER_CONDITION_ID = 2;
+    private static final int INDEX_WEATHER_DESC = 3;
+    private static final int INDEX_WEATHER_MAX_TEMP = 4;
+    private static final int INDEX_WEATHER_MIN_TEMP = 5;
+
+    /**
+     * The forecast of one location from today on, never changed once read.
+     */
+    public static final class Forecast {
+        public final String location;
+        public final int count;
+        public final long[] ids;
+        public final long[] dates;
+        public final int[] weatherIds;
+        public final String[] descriptions;
+        public final double[] highs;
+        public final double[] lows;
+
+        Forecast(String location, Cursor data) {
+            this.location = location;
+            count = data == null ? 0 : data.getCount();
+            ids = new long[count];
+            dates = new long[count];
+            weatherIds = new int[count];
+            descriptions = new String[count];
+            highs = new double[count];
+            lows = new double[count];
+            for (int i = 0; i < count && data.moveToPosition(i); i++) {
+                ids[i] = data.getLong(INDEX_WEATHER_ID);
+                dates[i] = data.getLong(INDEX_WEATHER_DATE);
+                weatherIds[i] = data.getInt(INDEX_WEATHER_CONDITION_ID);
+                descriptions[i] = data.getString(INDEX_WEATHER_DESC);
+                highs[i] = data.getDouble(INDEX_WEATHER_MAX_TEMP);
+                lows[i] = data.getDouble(INDEX_WEATHER_MIN_TEMP);
+            }
+        }
+    }
+
+    private static final Map<String, Forecast> sForecasts = new HashMap<>();
+    // Start of the day the forecasts were read on
+    private static long sDay;
+    private static int sReads;
+
+    private WidgetForecasts() {
+    }
+
+    /**
+     * Forget the forecasts read so far, call once a sync stored new ones.
+     */
+    public static synchronized void invalidate() {
+        sForecasts.clear();
+    }
+
+    /**
+     * @return the forecast of the location, read from the provider only if no widget read it
+     * since the last sync. Blocks, call on a worker thread.
+     */
+    public static Forecast get(Context context, String location) {
+        long day = WeatherContract.normalizeDate(System.currentTimeMillis());
+        synchronized (WidgetForecasts.class) {
+            if (day != sDay) {
+                // Yesterday's rows are still stored until the next sync
+                sForecasts.clear();
+                sDay = day;
+            }
+            Forecast forecast = sForecasts.get(location);
+            if (forecast == null) {
+                forecast = read(context, location, day);
+                sForecasts.put(location, forecast);
+                sReads++;
+            }
+            return forecast;
+        }
+    }
+
+    // Number of reads from the provider
+    static synchronized int getReadCount() {
+        return sReads;
+    }
+
+    private static Forecast read(Context context, String location, long day) {
+        // This is called by the app hosting the widget (e.g., the launcher)
+        // However, our ContentProvider is not exported so it doesn't have access to the
+        // data. Therefore we need to clear (and finally restore) the calling identity so
+        // that calls use our process and permission
+        final long identityToken = Binder.clearCallingIdentity();
+        try {
+            Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                    .buildWeatherLocationWithStartDate(location, day);
+            Cursor data = context.getContentResolver().query(weatherForLocationUri,
+                    FORECAST_COLUMNS,
+                    null,
+                    null,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+            try {
+                Forecast forecast = new Forecast(location, data);
+                Log.d(LOG_TAG, "Read " + forecast.count + " days for " + location);
+                return forecast;
+            } finally {
+                if (data != null) {
+                    data.close();
+                }
+            }
+        } finally {
+            Binder.restoreCallingIdentity(identityToken);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.format.Time;
+import android.util.Log;
+import android.util.SparseArray;
+
+/**
+ * Remembers what was last pushed to each widget, so an update that would push the same content
+ * again is skipped and one that only changes text is sent as a partial update.
+ * <p/>
+ * What the launcher shows is only known in memory: after the process restarted, the first update
+ * of every widget is a full one. The pushes avoided are counted per day.
+ */
+public class WidgetUpdateTracker {
+
+    private static final String LOG_TAG = WidgetUpdateTracker.class.getSimpleName();
+
+    public static final int PUSH_NONE = 0;
+    public static final int PUSH_PARTIAL = 1;
+    public static final int PUSH_FULL = 2;
+
+    private static final String PREFS_NAME = "widget_updates";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_AVOIDED = "avoided";
+    private static final String KEY_PARTIAL = "partial";
+    private static final String KEY_FULL = "full";
+
+    private static final WidgetUpdateTracker sInstance = new WidgetUpdateTracker();
+
+    // By appWidgetId: layout, fingerprint of everything but the text, fingerprint of the text
+    private final SparseArray<int[]> mPushed = new SparseArray<>();
+
+    public static WidgetUpdateTracker getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Decide how to update a widget, and remember the content as pushed.
+     *
+     * @param viewsFingerprint hash of everything besides the text, e.g. icon and click intent
+     * @param textFingerprint  hash of the text views
+     * @return one of the PUSH_ constants
+     */
+    public synchronized int decide(int appWidgetId, int layoutId, int viewsFingerprint, int textFingerprint) {
+        int[] pushed = mPushed.get(appWidgetId);
+        int push;
+        if (pushed == null || pushed[0] != layoutId || pushed[1] != viewsFingerprint) {
+            push = PUSH_FULL;
+        } else if (pushed[2] != textFingerprint) {
+            push = PUSH_PARTIAL;
+        } else {
+            push = PUSH_NONE;
+        }
+        mPushed.put(appWidgetId, new int[]{layoutId, viewsFingerprint, textFingerprint});
+        return push;
+    }
+
+    // The next update of these widgets is a full one, e.g. after the launcher asked for them
+    public synchronized void forget(int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            mPushed.remove(appWidgetId);
+        }
+    }
+
+    /**
+     * Add the outcome of one round of updates to today's counts.
+     */
+    public void record(Context context, int avoided, int partial, int full) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int today = currentJulianDay();
+        synchronized (this) {
+            boolean sameDay = prefs.getInt(KEY_DAY, 0) == today;
+            int avoidedToday = (sameDay ? prefs.getInt(KEY_AVOIDED, 0) : 0) + avoided;
+            int partialToday = (sameDay ? prefs.getInt(KEY_PARTIAL, 0) : 0) + partial;
+            int fullToday = (sameDay ? prefs.getInt(KEY_FULL, 0) : 0) + full;
+            prefs.edit()
+                    .putInt(KEY_DAY, today)
+                    .putInt(KEY_AVOIDED, avoidedToday)
+                    .putInt(KEY_PARTIAL, partialToday)
+                    .putInt(KEY_FULL, fullToday)
+                    .apply();
+            Log.d(LOG_TAG, "Widget pushes today: " + avoidedToday + " avoided, " + partialToday
+                    + " partial, " + fullToday + " full");
+        }
+    }
+
+    /**
+     * @return the widget pushes avoided today
+     */
+    public static int getAvoidedToday(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getInt(KEY_DAY, 0) == currentJulianDay() ? prefs.getInt(KEY_AVOIDED, 0) : 0;
+    }
+
+    private static int currentJulianDay() {
+        Time time = new Time();
+        time.setToNow();
+        return Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+    }
+}
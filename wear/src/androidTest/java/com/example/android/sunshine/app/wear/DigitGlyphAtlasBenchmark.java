@@ -0,0 +1,83 @@
+package com.example.android.sunshine.app.wear;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Compares drawing the time with {@link DigitGlyphAtlas} against a plain Canvas#drawText, reporting
+ * how many frames each approach renders per millisecond.
+ */
+public class DigitGlyphAtlasBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = DigitGlyphAtlasBenchmark.class.getSimpleName();
+
+    private static final int FRAMES = 5000;
+    private static final int SIZE = 320;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private Paint mPaint;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mBitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+        mPaint = new Paint();
+        mPaint.setColor(Color.WHITE);
+        mPaint.setTextSize(47 * getContext().getResources().getDisplayMetrics().density);
+        mPaint.setAntiAlias(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mBitmap.recycle();
+        super.tearDown();
+    }
+
+    public void testFormatTime() {
+        char[] buffer = new char[8];
+        assertEquals("09.05.07", new String(buffer, 0, DigitGlyphAtlas.formatTime(buffer, 9, 5, 7, true)));
+        assertEquals("23.59", new String(buffer, 0, DigitGlyphAtlas.formatTime(buffer, 23, 59, 0, false)));
+    }
+
+    public void testAtlasMeasuresLikePaint() {
+        DigitGlyphAtlas atlas = new DigitGlyphAtlas();
+        atlas.ensure(mPaint);
+        char[] buffer = new char[8];
+        int length = DigitGlyphAtlas.formatTime(buffer, 12, 34, 56, true);
+        assertEquals(mPaint.measureText(buffer, 0, length), atlas.measure(buffer, length), 1.0f);
+        atlas.release();
+    }
+
+    public void testFramesPerMillisecond() {
+        char[] buffer = new char[8];
+        float y = SIZE / 2;
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            String text = String.format("%02d.%02d.%02d", 12, 34, i % 60);
+            mCanvas.drawColor(Color.BLACK);
+            mCanvas.drawText(text, 10, y, mPaint);
+        }
+        double drawTextMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+        DigitGlyphAtlas atlas = new DigitGlyphAtlas();
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            int length = DigitGlyphAtlas.formatTime(buffer, 12, 34, i % 60, true);
+            mCanvas.drawColor(Color.BLACK);
+            atlas.ensure(mPaint);
+            atlas.draw(mCanvas, buffer, length, 10, y);
+        }
+        double atlasMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+        atlas.release();
+
+        Log.d(LOG_TAG, "drawText: " + (FRAMES / drawTextMs) + " frames/ms, atlas: " + (FRAMES / atlasMs) + " frames/ms");
+    }
+}
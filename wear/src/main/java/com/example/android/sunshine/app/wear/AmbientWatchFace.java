@@ -0,0 +1,198 @@
+package com.example.android.sunshine.app.wear;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.text.format.Time;
+import android.view.WindowInsets;
+
+import com.example.android.sunshine.app.R;
+
+/**
+ * Minimal renderer used while the watch is in ambient mode. Unlike {@link DigitalWatchFace} it never
+ * draws the full-colour weather icon or the divider, only draws monochrome text and shifts the whole
+ * content by a few pixels every minute to protect OLED screens from burn-in.
+ * <p/>
+ * The time and date are blitted from {@link DigitGlyphAtlas}es rendered without anti-aliasing when
+ * ambient mode starts, so the per-minute draw is a background fill plus a few bitmap copies. Only the
+ * temperatures, which need glyphs the atlas does not hold, still go through drawText.
+ */
+public class AmbientWatchFace {
+
+    // "hh.mm" and "dd.mm.yyyy"
+    private static final int TIME_LENGTH = 5;
+    private static final int DATE_LENGTH = 10;
+
+    private static final Typeface NORMAL_TYPEFACE = Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL);
+
+    // Pixel offsets cycled through once per minute, kept small so the layout does not visibly jump
+    private static final int[] BURN_IN_OFFSETS_X = {0, 3, 3, 0, -3, -3, 0, 3, -3};
+    private static final int[] BURN_IN_OFFSETS_Y = {0, 0, 3, 3, 3, 0, -3, -3, -3};
+
+    private static final int AMBIENT_COLOUR = Color.WHITE;
+    private static final int AMBIENT_SECONDARY_COLOUR = Color.GRAY;
+
+    private final Paint mTimePaint;
+    private final Paint mDatePaint;
+    private final Paint mTempPaint;
+    private final Time mTime;
+    private final Resources mResources;
+
+    private final DigitGlyphAtlas mTimeAtlas = new DigitGlyphAtlas();
+    private final DigitGlyphAtlas mDateAtlas = new DigitGlyphAtlas();
+    private final char[] mTimeChars = new char[TIME_LENGTH];
+    private final char[] mDateChars = new char[DATE_LENGTH];
+
+    private String mTempText;
+    private int mLastMinute = -1;
+
+    private float mWeatherYOffset;
+
+    // Device ambient capabilities, reported through WatchFaceService.Engine#onPropertiesChanged
+    private boolean mLowBitAmbient;
+    private boolean mBurnInProtection = true;
+
+    public static AmbientWatchFace newInstance(Context context) {
+        Resources resources = context.getResources();
+
+        Paint timePaint = new Paint();
+        timePaint.setColor(AMBIENT_COLOUR);
+        timePaint.setTypeface(NORMAL_TYPEFACE);
+        timePaint.setTextSize(resources.getDimension(R.dimen.time_text_size));
+
+        Paint datePaint = new Paint();
+        datePaint.setColor(AMBIENT_SECONDARY_COLOUR);
+        datePaint.setTypeface(NORMAL_TYPEFACE);
+        datePaint.setTextSize(resources.getDimension(R.dimen.date_text_size));
+
+        Paint tempPaint = new Paint();
+        tempPaint.setColor(AMBIENT_SECONDARY_COLOUR);
+        tempPaint.setTypeface(NORMAL_TYPEFACE);
+        tempPaint.setTextSize(resources.getDimension(R.dimen.temp_text_size));
+
+        return new AmbientWatchFace(resources, timePaint, datePaint, tempPaint, new Time());
+    }
+
+    AmbientWatchFace(Resources resources, Paint timePaint, Paint datePaint, Paint tempPaint, Time time) {
+        this.mResources = resources;
+        this.mTimePaint = timePaint;
+        this.mDatePaint = datePaint;
+        this.mTempPaint = tempPaint;
+        this.mTime = time;
+        // Ambient pixels are either on or off, so the glyphs are rendered with hard edges
+        mTimePaint.setAntiAlias(false);
+        mDatePaint.setAntiAlias(false);
+        mTempPaint.setAntiAlias(false);
+    }
+
+    // Render the glyph atlases up front, so the first ambient frame is already just blits
+    public void onEnterAmbient() {
+        mTimeAtlas.ensure(mTimePaint);
+        mDateAtlas.ensure(mDatePaint);
+    }
+
+    // The atlases are only needed while in ambient mode
+    public void onExitAmbient() {
+        mTimeAtlas.release();
+        mDateAtlas.release();
+    }
+
+    // Perform the (once a minute) ambient drawing. The background is always plain black.
+    public void draw(Canvas canvas, Rect bounds) {
+        mTime.setToNow();
+        if (mTime.minute != mLastMinute) {
+            mLastMinute = mTime.minute;
+            DigitGlyphAtlas.formatTime(mTimeChars, mTime.hour, mTime.minute, 0, false);
+            formatDate(mDateChars, mTime.monthDay, mTime.month + 1, mTime.year);
+        }
+        // No-ops unless the text size or colour changed since ambient mode started
+        mTimeAtlas.ensure(mTimePaint);
+        mDateAtlas.ensure(mDatePaint);
+
+        canvas.drawColor(Color.BLACK);
+
+        int shift = mBurnInProtection ? mLastMinute % BURN_IN_OFFSETS_X.length : 0;
+        float centerX = bounds.exactCenterX() + BURN_IN_OFFSETS_X[shift];
+        float centerY = bounds.exactCenterY() + BURN_IN_OFFSETS_Y[shift];
+
+        float timeYOffset = centerY + (mTimeAtlas.getDigitHeight() / 2.0f);
+        float timeX = centerX - (mTimeAtlas.measure(mTimeChars, TIME_LENGTH) / 2.0f);
+        mTimeAtlas.draw(canvas, mTimeChars, TIME_LENGTH, timeX, timeYOffset);
+
+        float dateYOffset = timeYOffset + mDateAtlas.getDigitHeight() + 10.0f;
+        float dateX = centerX - (mDateAtlas.measure(mDateChars, DATE_LENGTH) / 2.0f);
+        mDateAtlas.draw(canvas, mDateChars, DATE_LENGTH, dateX, dateYOffset);
+
+        // Temperatures are drawn as plain text, the full-colour icon is left out on purpose
+        if (mTempText != null) {
+            float yOffset = mWeatherYOffset + BURN_IN_OFFSETS_Y[shift];
+            canvas.drawText(mTempText, centerX - (mTempPaint.measureText(mTempText) / 2.0f), yOffset, mTempPaint);
+        }
+    }
+
+    public void setWindowInsets(WindowInsets insets) {
+        boolean isRound = insets.isRound();
+
+        mWeatherYOffset = mResources.getDimension(isRound ? R.dimen.weather_y_offset_round : R.dimen.weather_y_offset);
+
+        mTimePaint.setTextSize(mResources.getDimension(isRound ? R.dimen.time_text_size_round : R.dimen.time_text_size));
+        mDatePaint.setTextSize(mResources.getDimension(isRound ? R.dimen.date_text_size_round : R.dimen.date_text_size));
+        mTempPaint.setTextSize(mResources.getDimension(isRound ? R.dimen.temp_text_size_round : R.dimen.temp_text_size));
+    }
+
+    public void setLowBitAmbient(boolean lowBitAmbient) {
+        mLowBitAmbient = lowBitAmbient;
+        updateSecondaryColour();
+    }
+
+    public void setBurnInProtection(boolean burnInProtection) {
+        mBurnInProtection = burnInProtection;
+    }
+
+    public void updateWeather(String high, String low) {
+        mTempText = (high != null && low != null) ? high + "  " + low : null;
+    }
+
+    public void release() {
+        onExitAmbient();
+    }
+
+    // Low-bit ambient screens cannot show grey, so the secondary text is drawn in full white there
+    private void updateSecondaryColour() {
+        int colour = mLowBitAmbient ? AMBIENT_COLOUR : AMBIENT_SECONDARY_COLOUR;
+        mDatePaint.setColor(colour);
+        mTempPaint.setColor(colour);
+    }
+
+    // Write the date as "dd.mm.yyyy" into the given buffer without allocating
+    private static void formatDate(char[] buffer, int day, int month, int year) {
+        int count = DigitGlyphAtlas.formatTime(buffer, day, month, 0, false);
+        buffer[count++] = '.';
+        for (int i = count + 3; i >= count; i--) {
+            buffer[i] = (char) ('0' + year % 10);
+            year /= 10;
+        }
+    }
+
+    // Count the pixels that are not fully black, used to compare the ambient path with the interactive one
+    static int countLitPixels(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] row = new int[width];
+        int lit = 0;
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                if ((row[x] & 0x00FFFFFF) != 0) {
+                    lit++;
+                }
+            }
+        }
+        return lit;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.android.sunshine.app.wear;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Rasterizes the handful of glyphs needed to show the time (digits and the separator) into a single
+ * bitmap, so that drawing the time every second is a few bitmap blits instead of a drawText call
+ * going through text shaping and measurement.
+ * <p/>
+ * The atlas is tied to the text size, colour and anti-alias flag of the paint it was built from and
+ * is only rebuilt when one of those changes.
+ */
+public class DigitGlyphAtlas {
+
+    static final String GLYPHS = "0123456789.";
+    private static final int SEPARATOR_INDEX = GLYPHS.length() - 1;
+    // Extra room around every glyph so anti-aliased edges and overhangs are not clipped
+    private static final int PADDING = 2;
+
+    private final Rect[] mGlyphRects = new Rect[GLYPHS.length()];
+    private final float[] mAdvances = new float[GLYPHS.length()];
+    private final Rect mDst = new Rect();
+
+    private Bitmap mAtlas;
+    private int mBaseline;
+    private int mDigitHeight;
+
+    // Paint attributes the current atlas was rendered with
+    private float mTextSize;
+    private int mColour;
+    private boolean mAntiAlias;
+
+    public DigitGlyphAtlas() {
+        for (int i = 0; i < mGlyphRects.length; i++) {
+            mGlyphRects[i] = new Rect();
+        }
+    }
+
+    // Rebuild the atlas if the paint no longer matches the one it was rendered with
+    public void ensure(Paint paint) {
+        if (mAtlas == null || paint.getTextSize() != mTextSize || paint.getColor() != mColour
+                || paint.isAntiAlias() != mAntiAlias) {
+            rebuild(paint);
+        }
+    }
+
+    private void rebuild(Paint paint) {
+        mTextSize = paint.getTextSize();
+        mColour = paint.getColor();
+        mAntiAlias = paint.isAntiAlias();
+
+        paint.getTextWidths(GLYPHS, mAdvances);
+        Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        mBaseline = PADDING - metrics.ascent;
+        int cellHeight = mBaseline + metrics.descent + PADDING;
+
+        Rect bounds = new Rect();
+        paint.getTextBounds(GLYPHS, 0, SEPARATOR_INDEX, bounds);
+        mDigitHeight = bounds.height();
+
+        int left = 0;
+        for (int i = 0; i < mAdvances.length; i++) {
+            int cellWidth = (int) Math.ceil(mAdvances[i]) + 2 * PADDING;
+            mGlyphRects[i].set(left, 0, left + cellWidth, cellHeight);
+            left += cellWidth;
+        }
+
+        if (mAtlas != null) {
+            mAtlas.recycle();
+        }
+        mAtlas = Bitmap.createBitmap(left, cellHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mAtlas);
+        for (int i = 0; i < mAdvances.length; i++) {
+            canvas.drawText(GLYPHS, i, i + 1, mGlyphRects[i].left + PADDING, mBaseline, paint);
+        }
+    }
+
+    // Width of the text as drawText would lay it out
+    public float measure(char[] text, int count) {
+        float width = 0;
+        for (int i = 0; i < count; i++) {
+            width += mAdvances[indexOf(text[i])];
+        }
+        return width;
+    }
+
+    // Height of the digit glyphs, equivalent to Paint#getTextBounds on a string of digits
+    public int getDigitHeight() {
+        return mDigitHeight;
+    }
+
+    // Blit the text with its baseline at y, starting at x
+    public void draw(Canvas canvas, char[] text, int count, float x, float y) {
+        int top = Math.round(y) - mBaseline;
+        float penX = x;
+        for (int i = 0; i < count; i++) {
+            int index = indexOf(text[i]);
+            Rect src = mGlyphRects[index];
+            int left = Math.round(penX) - PADDING;
+            mDst.set(left, top, left + src.width(), top + src.height());
+            canvas.drawBitmap(mAtlas, src, mDst, null);
+            penX += mAdvances[index];
+        }
+    }
+
+    public void release() {
+        if (mAtlas != null) {
+            mAtlas.recycle();
+            mAtlas = null;
+        }
+    }
+
+    private static int indexOf(char c) {
+        return (c >= '0' && c <= '9') ? c - '0' : SEPARATOR_INDEX;
+    }
+
+    /**
+     * Write the time as "hh.mm" or "hh.mm.ss" into the given buffer without allocating.
+     *
+     * @return the number of characters written
+     */
+    public static int formatTime(char[] buffer, int hour, int minute, int second, boolean showSeconds) {
+        int count = 0;
+        count = appendTwoDigits(buffer, count, hour);
+        buffer[count++] = '.';
+        count = appendTwoDigits(buffer, count, minute);
+        if (showSeconds) {
+            buffer[count++] = '.';
+            count = appendTwoDigits(buffer, count, second);
+        }
+        return count;
+    }
+
+    private static int appendTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + (value / 10) % 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+        return offset + 2;
+    }
+}
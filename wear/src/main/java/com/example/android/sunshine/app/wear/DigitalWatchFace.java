@@ -16,8 +16,9 @@ import android.view.WindowInsets;
 
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
-import com.example.android.sunshine.app.common.Constants;
-import com.google.android.gms.wearable.DataMap;
+import com.example.android.sunshine.app.common.TemperatureFormatter;
+import com.example.android.sunshine.app.common.config.WatchFaceConfig;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
 
 /**
  * See <a hred="http://developer.android.com/training/wearables/watch-faces/service.html">Building a Watch Face Service</a>
@@ -28,8 +29,6 @@ public class DigitalWatchFace {
     // Logging Identifier for the class
     private static String LOG_TAG = DigitalWatchFace.class.getSimpleName();
 
-    private static final String TIME_FORMAT_WITHOUT_SECONDS = "%02d.%02d";
-    private static final String TIME_FORMAT_WITH_SECONDS = TIME_FORMAT_WITHOUT_SECONDS + ".%02d";
     private static final String DATE_FORMAT = "%02d.%02d.%d";
 
     // Font types
@@ -45,8 +44,12 @@ public class DigitalWatchFace {
     private final Paint mTextTimePaint;
     private final Paint mTextDatePaint;
     private final Time mTime;
+    // Pre-rendered time digits, blitted every second instead of calling drawText
+    private final DigitGlyphAtlas mTimeAtlas = new DigitGlyphAtlas();
+    private final char[] mTimeChars = new char[8];
 
     // Weather display fields
+    private WeatherSnapshot mWeatherSnapshot;
     private Bitmap mWeatherIcon;
     private String mWeatherHigh;
     private String mWeatherLow;
@@ -61,6 +64,8 @@ public class DigitalWatchFace {
 
     private int backgroundColour = BACKGROUND_DEFAULT_COLOUR;
     private int dateAndTimeColour = DATE_AND_TIME_DEFAULT_COLOUR;
+    // Applied configuration, the default one has version 0 so any config from the phone wins
+    private WatchFaceConfig config = WatchFaceConfig.DEFAULT;
 
     private boolean shouldShowSeconds = true;
     private static Resources resources;
@@ -116,11 +121,13 @@ public class DigitalWatchFace {
         // Set the background color of canvas
         canvas.drawRect(0, 0, bounds.width(), bounds.height(), backgroundPaint);
 
-        String timeText = String.format(shouldShowSeconds ? TIME_FORMAT_WITH_SECONDS : TIME_FORMAT_WITHOUT_SECONDS, mTime.hour, mTime.minute, mTime.second);
-        float timeXOffset = computeXOffset(timeText, mTextTimePaint, bounds);
-        float timeYOffset = computeTimeYOffset(timeText, mTextTimePaint, bounds);
+        int timeLength = DigitGlyphAtlas.formatTime(mTimeChars, mTime.hour, mTime.minute, mTime.second, shouldShowSeconds);
+        // Only re-rasterizes the digits if the size, colour or anti-aliasing of the time paint changed
+        mTimeAtlas.ensure(mTextTimePaint);
+        float timeXOffset = bounds.exactCenterX() - (mTimeAtlas.measure(mTimeChars, timeLength) / 2.0f);
+        float timeYOffset = bounds.exactCenterY() + (mTimeAtlas.getDigitHeight() / 2.0f);
         // Draw the mTime
-        canvas.drawText(timeText, timeXOffset, timeYOffset, mTextTimePaint);
+        mTimeAtlas.draw(canvas, mTimeChars, timeLength, timeXOffset, timeYOffset);
 
         String dateText = String.format(DATE_FORMAT, mTime.monthDay, (mTime.month + 1), mTime.year);
         float dateXOffset = computeXOffset(dateText, mTextDatePaint, bounds);
@@ -169,15 +176,6 @@ public class DigitalWatchFace {
         return centerX - (timeLength / 2.0f);
     }
 
-    // Helper methods in order to compute the y offset of both mTime drawing.
-    private float computeTimeYOffset(String timeText, Paint timePaint, Rect watchBounds) {
-        float centerY = watchBounds.exactCenterY();
-        Rect textBounds = new Rect();
-        timePaint.getTextBounds(timeText, 0, timeText.length(), textBounds);
-        int textHeight = textBounds.height();
-        return centerY + (textHeight / 2.0f);
-    }
-
     // Helper methods in order to compute the y offset of date drawing.
     private float computeDateYOffset(String dateText, Paint datePaint) {
         Rect textBounds = new Rect();
@@ -198,85 +196,63 @@ public class DigitalWatchFace {
         backgroundPaint.setColor(colour);
     }
 
-    // Update to default in Ambient mode
-    public void updateBackgroundColourToDefault() {
-        backgroundPaint.setColor(BACKGROUND_DEFAULT_COLOUR);
-    }
-
-    // Update to default in Ambient mode
-    public void updateDateAndTimeColourToDefault() {
-        mTextTimePaint.setColor(DATE_AND_TIME_DEFAULT_COLOUR);
-        mTextDatePaint.setColor(DATE_AND_TIME_DEFAULT_COLOUR);
-    }
-
-    // Restore to selected color in non-Ambient mode
-    public void restoreDateAndTimeColour() {
-        mTextTimePaint.setColor(dateAndTimeColour);
-        mTextDatePaint.setColor(dateAndTimeColour);
-    }
-
-    // Restore to selected color in non-Ambient mode
-    public void restoreBackgroundColour() {
-        backgroundPaint.setColor(backgroundColour);
+    public void setShowSeconds(boolean showSeconds) {
+        shouldShowSeconds = showSeconds;
     }
 
-
-    public void setAntiAlias(boolean antiAlias) {
-        mTextTimePaint.setAntiAlias(antiAlias);
-        mTextDatePaint.setAntiAlias(antiAlias);
-        mTextTempHighPaint.setAntiAlias(antiAlias);
-        mTextTempLowPaint.setAntiAlias(antiAlias);
+    public void release() {
+        mTimeAtlas.release();
     }
 
-    public void setColor(int color) {
-        mTextTimePaint.setColor(color);
-        mTextDatePaint.setColor(color);
+    public String getWeatherHigh() {
+        return mWeatherHigh;
     }
 
-    public void setShowSeconds(boolean showSeconds) {
-        shouldShowSeconds = showSeconds;
+    public String getWeatherLow() {
+        return mWeatherLow;
     }
 
-    public void updateWeatherData(DataMap dataMap) {
-        //  Use keys associated with every item in order to get hold of the sent values
-        if (dataMap.containsKey(Constants.WEATHER_KEY_TEMP_MAX)) {
-            mWeatherHigh = dataMap.getString(Constants.WEATHER_KEY_TEMP_MAX);
-            Log.d(LOG_TAG, "High = " + mWeatherHigh);
-        } else {
-            Log.d(LOG_TAG, "What? No high?");
-        }
-
-        if (dataMap.containsKey(Constants.WEATHER_KEY_TEMP_MIN)) {
-            mWeatherLow = dataMap.getString(Constants.WEATHER_KEY_TEMP_MIN);
-            Log.d(LOG_TAG, "Low = " + mWeatherLow);
-        } else {
-            Log.d(LOG_TAG, "What? No low?");
-        }
+    public void updateWeather(WeatherSnapshot snapshot) {
+        mWeatherSnapshot = snapshot;
+        formatTemperatures();
 
-        if (dataMap.containsKey(Constants.WEATHER_KEY_ID)) {
-            int weatherId = dataMap.getInt(Constants.WEATHER_KEY_ID);
-            Drawable b = resources.getDrawable(Utility.getIconResourceForWeatherCondition(weatherId));
+        int iconId = Utility.getIconResourceForWeatherCondition(snapshot.weatherId);
+        if (iconId != -1) {
+            Drawable b = resources.getDrawable(iconId);
             Bitmap icon = ((BitmapDrawable) b).getBitmap();
             float scaledWidth = (mTextTempHighPaint.getTextSize() / icon.getHeight()) * icon.getWidth();
             mWeatherIcon = Bitmap.createScaledBitmap(icon, (int) scaledWidth, (int) mTextTempHighPaint.getTextSize(), true);
-
         } else {
-            Log.d(LOG_TAG, "What? no weatherId?");
+            Log.d(LOG_TAG, "What? no icon for weatherId " + snapshot.weatherId + "?");
         }
     }
 
-    public void updateConfigurationChanges(DataMap dataMap) {
-        //  Use keys associated with every item in order to get hold of the sent values
-        if (dataMap.containsKey("KEY_BACKGROUND_COLOUR")) {
-            String backgroundColour = dataMap.getString("KEY_BACKGROUND_COLOUR");
-            updateBackgroundColourTo(Color.parseColor(backgroundColour));
-            Log.d(LOG_TAG, "processConfiguration" + backgroundColour);
-        }
+    // Temperatures arrive as raw Celsius values, format them once here rather than every frame
+    private void formatTemperatures() {
+        boolean metric = config.isMetric(mWeatherSnapshot.metric);
+        mWeatherHigh = TemperatureFormatter.format(mWeatherSnapshot.high, metric);
+        mWeatherLow = TemperatureFormatter.format(mWeatherSnapshot.low, metric);
+        Log.d(LOG_TAG, "High = " + mWeatherHigh + " Low = " + mWeatherLow);
+    }
 
-        if (dataMap.containsKey("KEY_DATE_TIME_COLOUR")) {
-            String timeColour = dataMap.getString("KEY_DATE_TIME_COLOUR");
-            updateDateAndTimeColourTo(Color.parseColor(timeColour));
-            Log.d(LOG_TAG, "processConfiguration" + timeColour);
+    /**
+     * Apply a whole configuration sent by the phone.
+     *
+     * @return false if it is not newer than the one already applied
+     */
+    public boolean updateConfigurationChanges(WatchFaceConfig newConfig) {
+        if (newConfig.version <= config.version) {
+            return false;
+        }
+        boolean unitsChanged = newConfig.units != config.units;
+        config = newConfig;
+        updateBackgroundColourTo(newConfig.backgroundColour);
+        updateDateAndTimeColourTo(newConfig.dateAndTimeColour);
+        shouldShowSeconds = newConfig.showSeconds();
+        if (unitsChanged && mWeatherSnapshot != null) {
+            formatTemperatures();
         }
+        Log.d(LOG_TAG, "processConfiguration " + newConfig);
+        return true;
     }
 }
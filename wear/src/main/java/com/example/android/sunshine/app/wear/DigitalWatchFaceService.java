@@ -1,36 +1,28 @@
 package com.example.android.sunshine.app.wear;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
+import android.os.SystemClock;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
+import com.example.android.sunshine.app.BuildConfig;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.common.Constants;
-import com.google.android.gms.common.ConnectionResult;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
-import com.google.android.gms.wearable.DataApi;
-import com.google.android.gms.wearable.DataEvent;
-import com.google.android.gms.wearable.DataEventBuffer;
-import com.google.android.gms.wearable.DataItem;
-import com.google.android.gms.wearable.DataItemBuffer;
+import com.example.android.sunshine.app.common.config.WatchFaceConfig;
+import com.example.android.sunshine.app.common.config.WatchFaceConfigCodec;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
 import com.google.android.gms.wearable.DataMap;
-import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,6 +38,9 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
     // displayed in interactive mode.
     private static final long INTERACTIVE_TICK_PERIOD_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
 
+    // Minimum time between two exports of the render metrics to the phone (debug builds only)
+    private static final long METRICS_EXPORT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(15);
+
     @Override
     public Engine onCreateEngine() {
         // Return the concrete implementation of the Engine
@@ -54,108 +49,47 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
 
     private class WatchFaceEngine extends CanvasWatchFaceService.Engine {
 
-        private static final String KEY_UUID = "uuid";
-
-
         // Handler that will post a runnable only if the watch is visible and not in ambient mode in order to start ticking
         private Handler mTimeTick;
         // Instance of a watch face
         private DigitalWatchFace mDigitalWatchFace;
-        // To synchronize with the data layer API, we have to firstly connect to it through a GoogleApiClient object
-        private GoogleApiClient mGoogleApiClient;
-        // Get notified every time there is a change in the data layer
-        private final DataApi.DataListener onDataChangedListener = new DataApi.DataListener() {
-            @Override
-            public void onDataChanged(DataEventBuffer dataEvents) {
-                // Iterate through all data events
-                for (DataEvent event : dataEvents) {
-                    // Look only for DataEvent.TYPE_CHANGED events
-                    if (event.getType() == DataEvent.TYPE_CHANGED) {
-                        DataItem item = event.getDataItem();
-                        // Discriminate between unique paths
-                        if (Constants.WATCH_FACE_SETTINGS_PATH.equals(item.getUri().getPath())) {
-                            processConfigurationChange(item);
-                        }
-                        if (Constants.WEATHER_DATA_PATH.equals(item.getUri().getPath())) {
-                            processWeatherData(item);
-                        }
-                    } else if (event.getType() == DataEvent.TYPE_DELETED) {
-                        // DataItem deleted
-                    }
-                }
-
-                dataEvents.release();
-                invalidateIfNecessary();
-            }
-
-        };
-
-        // Only notified when the service is firstly connected
-        private final ResultCallback<DataItemBuffer> onConnectedResultCallback = new ResultCallback<DataItemBuffer>() {
+        // Separate low power renderer used while in ambient mode
+        private AmbientWatchFace mAmbientWatchFace;
+        // Frame cost, tick jitter, invalidation and connection figures, only collected in debug builds
+        private final WatchFaceMetrics mMetrics = BuildConfig.DEBUG ? new WatchFaceMetrics() : null;
+        // Uptime at which the interactive tick is expected to run next
+        private long mNextTickUptimeMs;
+        private long mLastMetricsExportMs;
+        // Long-lived data layer connection shared by every engine, kept open across visibility changes
+        private WatchDataLayerConnection mDataLayerConnection;
+        // Receives changed data items and connection state from the shared connection
+        private final WatchDataLayerConnection.Callback mDataLayerCallback = new WatchDataLayerConnection.Callback() {
             @Override
-            public void onResult(DataItemBuffer dataItems) {
-                for (DataItem item : dataItems) {
-                    if (Constants.WATCH_FACE_SETTINGS_PATH.equals(item.getUri().getPath())) {
-                        processConfigurationChange(item);
-                    }
-
+            public void onDataMapChanged(String path, DataMap dataMap) {
+                // Discriminate between unique paths
+                if (Constants.WATCH_FACE_SETTINGS_PATH.equals(path)) {
+                    processConfigurationChange(dataMap);
                 }
-                dataItems.release();
-                invalidateIfNecessary();
             }
-        };
-
-        // A callback to update on the status of the connection
-        GoogleApiClient.ConnectionCallbacks mConnectionCallbacks = new GoogleApiClient.ConnectionCallbacks() {
 
             @Override
-            public void onConnected(@Nullable Bundle bundle) {
-                Log.d(LOG_TAG, "connected GoogleAPI");
-                Wearable.DataApi.addListener(mGoogleApiClient, onDataChangedListener);
-                Wearable.DataApi.getDataItems(mGoogleApiClient).setResultCallback(onConnectedResultCallback);
-                // Request information about watch settings
-                requestWatchSettingsInfo();
-                // Request information about the weather
-                requestWeatherInfo();
+            public void onWeatherChanged(WeatherSnapshot snapshot) {
+                processWeatherData(snapshot);
             }
 
             @Override
-            public void onConnectionSuspended(int i) {
-                Log.e(LOG_TAG, "suspended GoogleAPI");
-            }
-        };
-
-        // A callback to update on the status of trying to connect
-        GoogleApiClient.OnConnectionFailedListener mOnConnectionFailedListener = new GoogleApiClient.OnConnectionFailedListener() {
-            @Override
-            public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
-                Log.d(LOG_TAG, "connectedFailed GoogleAPI");
+            public void onConnectionChanged(boolean connected) {
+                if (mMetrics == null) {
+                    return;
+                }
+                if (connected) {
+                    mMetrics.onConnected();
+                } else {
+                    mMetrics.onDisconnected();
+                }
             }
         };
 
-        private void requestWatchSettingsInfo() {
-            Wearable.DataApi.getDataItems(mGoogleApiClient).setResultCallback(onConnectedResultCallback);
-        }
-
-        private void requestWeatherInfo() {
-            PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(Constants.WEATHER_DATA_PATH);
-            putDataMapRequest.getDataMap().putString(KEY_UUID, UUID.randomUUID().toString());
-            PutDataRequest request = putDataMapRequest.asPutDataRequest();
-
-            Wearable.DataApi.getDataItems(mGoogleApiClient).setResultCallback(onConnectedResultCallback);
-            Wearable.DataApi.putDataItem(mGoogleApiClient, request)
-                    .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                        @Override
-                        public void onResult(DataApi.DataItemResult dataItemResult) {
-                            if (!dataItemResult.getStatus().isSuccess()) {
-                                Log.d(LOG_TAG, "Failed asking phone for weather data");
-                            } else {
-                                Log.d(LOG_TAG, "Successfully asked for weather data");
-                            }
-                        }
-                    });
-        }
-
         // Define your watch face style and other graphical elements.
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -180,17 +114,16 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
             // Initialize the Watch Face
             mDigitalWatchFace = DigitalWatchFace.newInstance(DigitalWatchFaceService.this);
             mDigitalWatchFace.updateBackgroundColourTo(getResources().getColor(R.color.digital_background));
-            // Client to synchronise with data API
-            mGoogleApiClient = new GoogleApiClient.Builder(DigitalWatchFaceService.this)
-                    .addApi(Wearable.API)
-                    .addConnectionCallbacks(mConnectionCallbacks)
-                    .addOnConnectionFailedListener(mOnConnectionFailedListener)
-                    .build();
+            mAmbientWatchFace = AmbientWatchFace.newInstance(DigitalWatchFaceService.this);
+            // Shared client to synchronise with data API, connected for the lifetime of the engine
+            mDataLayerConnection = WatchDataLayerConnection.getInstance(DigitalWatchFaceService.this);
+            mDataLayerConnection.acquire(mDataLayerCallback);
         }
 
         private void startTimerIfNecessary() {
             mTimeTick.removeCallbacks(timeRunnable);
             if (isVisible() && !isInAmbientMode()) {
+                mNextTickUptimeMs = SystemClock.uptimeMillis();
                 mTimeTick.post(timeRunnable);
             }
         }
@@ -200,55 +133,93 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
         private final Runnable timeRunnable = new Runnable() {
             @Override
             public void run() {
+                long now = SystemClock.uptimeMillis();
+                if (mMetrics != null) {
+                    mMetrics.recordTick(mNextTickUptimeMs, now);
+                }
                 onSecondTick();
 
                 if (isVisible() && !isInAmbientMode()) {
+                    mNextTickUptimeMs = now + INTERACTIVE_TICK_PERIOD_UPDATE_RATE_MS;
                     mTimeTick.postDelayed(this, INTERACTIVE_TICK_PERIOD_UPDATE_RATE_MS);
                 }
             }
         };
 
         private void onSecondTick() {
-            invalidateIfNecessary();
+            invalidateIfNecessary(WatchFaceMetrics.CAUSE_TICK);
         }
 
-        private void invalidateIfNecessary() {
+        private void invalidateIfNecessary(int cause) {
             if (isVisible() && !isInAmbientMode()) {
-                invalidate();
+                invalidate(cause);
             }
         }
 
+        // Invalidate while keeping track of what asked for the redraw
+        private void invalidate(int cause) {
+            if (mMetrics != null) {
+                mMetrics.recordInvalidate(cause);
+            }
+            invalidate();
+        }
+
         // Called when the watch becomes visible or not.
         @Override
         public void onVisibilityChanged(boolean visible) {
             //Must call super() first
             super.onVisibilityChanged(visible);
+            // The data layer connection stays up across visibility changes, only refresh stale weather
             if (visible) {
-                // Engage client when WatchFace is visible
-                mGoogleApiClient.connect();
-                Log.d(LOG_TAG, "GoogleApiClent Connection Requested");
-
-            } else {
-                // Free client when the watch face is not visible anymore.
-                releaseGoogleApiClient();
+                mDataLayerConnection.requestWeatherIfStale();
+            } else if (mMetrics != null) {
+                exportMetrics();
             }
             startTimerIfNecessary();
         }
 
-        // Lets draw the DigitalWatchFace
+        // Lets draw the DigitalWatchFace, or its minimal counterpart while in ambient mode
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
             super.onDraw(canvas, bounds);
-            mDigitalWatchFace.draw(canvas, bounds);
+            long start = SystemClock.elapsedRealtimeNanos();
+            if (isInAmbientMode()) {
+                mAmbientWatchFace.draw(canvas, bounds);
+                if (BuildConfig.DEBUG) {
+                    Log.d(LOG_TAG, "Ambient draw took " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + "us");
+                }
+            } else {
+                mDigitalWatchFace.draw(canvas, bounds);
+                // Only interactive frames go into the histogram, ambient ones are logged above
+                if (mMetrics != null) {
+                    mMetrics.recordFrame(SystemClock.elapsedRealtimeNanos() - start);
+                    // The overlay is drawn after the frame has been measured so it does not skew the figures
+                    mMetrics.drawOverlay(canvas, bounds);
+                }
+            }
+        }
+
+        // Receives the screen capabilities relevant to ambient mode (low-bit colours, burn-in protection)
+        @Override
+        public void onPropertiesChanged(Bundle properties) {
+            super.onPropertiesChanged(properties);
+            mAmbientWatchFace.setLowBitAmbient(properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false));
+            mAmbientWatchFace.setBurnInProtection(properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false));
         }
 
-        // Release connection when not needed
-        private void releaseGoogleApiClient() {
-            if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
-                Wearable.DataApi.removeListener(mGoogleApiClient, onDataChangedListener);
-                mGoogleApiClient.disconnect();
-                Log.d(LOG_TAG, "GoogleApiClent Connection Disconnected");
+        // Push the collected render metrics to the phone, at most once every METRICS_EXPORT_INTERVAL_MS
+        private void exportMetrics() {
+            long now = SystemClock.elapsedRealtime();
+            if (!mDataLayerConnection.isConnected()
+                    || (mLastMetricsExportMs != 0 && now - mLastMetricsExportMs < METRICS_EXPORT_INTERVAL_MS)) {
+                return;
             }
+            mLastMetricsExportMs = now;
+            PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(Constants.WATCH_FACE_METRICS_PATH);
+            putDataMapRequest.getDataMap().putAll(mMetrics.toDataMap());
+            Wearable.DataApi.putDataItem(mDataLayerConnection.getClient(), putDataMapRequest.asPutDataRequest());
+            // Every export covers the period since the previous one
+            mMetrics.reset();
         }
 
         // Called when the device enters or exits ambient mode. While on ambient mode, one should be considerate
@@ -257,22 +228,17 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
             Log.d(LOG_TAG, "Enter Ambient Mode");
-            // Battery performance optimizations
-            mDigitalWatchFace.setAntiAlias(!inAmbientMode);
-            // We set the color to gray in Ambien
-            mDigitalWatchFace.setColor(inAmbientMode ? Color.GRAY : Color.WHITE);
-            // Hide seconds in order to minimize the amount of animations (draws)
-            mDigitalWatchFace.setShowSeconds(!isInAmbientMode());
-            // In ambient mode, we would want to default to black and white colours
+            // Drawing is handed over to AmbientWatchFace, which has its own monochrome paints, so the
+            // interactive face keeps its selected colours untouched
             if (inAmbientMode) {
-                mDigitalWatchFace.updateBackgroundColourToDefault();
-                mDigitalWatchFace.updateDateAndTimeColourToDefault();
+                mAmbientWatchFace.onEnterAmbient();
+                if (BuildConfig.DEBUG) {
+                    logAmbientRenderCost(getSurfaceHolder().getSurfaceFrame());
+                }
             } else {
-                // Restore its colours to the selected ones
-                mDigitalWatchFace.restoreBackgroundColour();
-                mDigitalWatchFace.restoreDateAndTimeColour();
+                mAmbientWatchFace.onExitAmbient();
             }
-            invalidate();
+            invalidate(WatchFaceMetrics.CAUSE_AMBIENT);
             startTimerIfNecessary();
         }
 
@@ -280,6 +246,7 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
         public void onApplyWindowInsets(WindowInsets insets) {
             super.onApplyWindowInsets(insets);
             mDigitalWatchFace.setWindowInsets(insets);
+            mAmbientWatchFace.setWindowInsets(insets);
         }
 
         // Callback is invoked every minute when the watch is in ambient mode. It is very important to consider that this callback is only
@@ -289,29 +256,67 @@ public class DigitalWatchFaceService extends CanvasWatchFaceService {
             super.onTimeTick();
             // Above being said, usually, here we will have only to invalidate() the watch in order to trigger onDraw(). In order to keep track
             // of time outside ambient mode, we will have to provide our own mechanism.
-            invalidate();
+            invalidate(WatchFaceMetrics.CAUSE_TICK);
         }
 
-        private void processConfigurationChange(DataItem item) {
-            //  Acquire
-            DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
-            // Upgrade watch settings
-            mDigitalWatchFace.updateConfigurationChanges(dataMap);
-            invalidate();
+        private void processConfigurationChange(DataMap dataMap) {
+            byte[] payload = dataMap.getByteArray(Constants.CONFIG_KEY_PAYLOAD);
+            if (payload == null) {
+                // Left over item of the old string keyed settings
+                return;
+            }
+            WatchFaceConfig config;
+            try {
+                config = WatchFaceConfigCodec.decode(payload);
+            } catch (IllegalArgumentException e) {
+                Log.d(LOG_TAG, "Ignoring watch face config: " + e.getMessage());
+                return;
+            }
+            // Upgrade watch settings, all of them at once so a batch costs a single redraw
+            if (mDigitalWatchFace.updateConfigurationChanges(config)) {
+                // A units override changes the temperatures the ambient face shows as well
+                mAmbientWatchFace.updateWeather(mDigitalWatchFace.getWeatherHigh(), mDigitalWatchFace.getWeatherLow());
+                // Settings only affect the interactive face, ambient picks them up on the next minute tick
+                invalidateIfNecessary(WatchFaceMetrics.CAUSE_CONFIG);
+            }
         }
 
-        private void processWeatherData(DataItem item) {
-            //  Acquire
-            DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
+        private void processWeatherData(WeatherSnapshot snapshot) {
             // Update the weather data
-            mDigitalWatchFace.updateWeatherData(dataMap);
-            invalidate();
+            mDigitalWatchFace.updateWeather(snapshot);
+            mAmbientWatchFace.updateWeather(mDigitalWatchFace.getWeatherHigh(), mDigitalWatchFace.getWeatherLow());
+            invalidateIfNecessary(WatchFaceMetrics.CAUSE_WEATHER);
+        }
+
+        // Debug only: render both faces off screen and log their draw cost and lit pixel count
+        private void logAmbientRenderCost(Rect bounds) {
+            if (bounds.isEmpty()) {
+                return;
+            }
+            Bitmap bitmap = Bitmap.createBitmap(bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            mDigitalWatchFace.draw(canvas, bounds);
+            long interactiveNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int interactiveLit = AmbientWatchFace.countLitPixels(bitmap);
+
+            start = SystemClock.elapsedRealtimeNanos();
+            mAmbientWatchFace.draw(canvas, bounds);
+            long ambientNanos = SystemClock.elapsedRealtimeNanos() - start;
+            int ambientLit = AmbientWatchFace.countLitPixels(bitmap);
+
+            bitmap.recycle();
+            Log.d(LOG_TAG, "Interactive path: " + interactiveNanos / 1000 + "us, " + interactiveLit + " lit px; "
+                    + "ambient path: " + ambientNanos / 1000 + "us, " + ambientLit + " lit px");
         }
 
         @Override
         public void onDestroy() {
             mTimeTick.removeCallbacks(timeRunnable);
-            releaseGoogleApiClient();
+            mDataLayerConnection.release(mDataLayerCallback);
+            mDigitalWatchFace.release();
+            mAmbientWatchFace.release();
             super.onDestroy();
         }
     }
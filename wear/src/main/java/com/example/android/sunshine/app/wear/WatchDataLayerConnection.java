@@ -0,0 +1,308 @@
+package com.example.android.sunshine.app.wear;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.Constants;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
+import com.example.android.sunshine.app.common.sync.WeatherSyncClient;
+import com.example.android.sunshine.app.common.sync.WeatherSyncProtocol;
+import com.example.android.sunshine.app.common.sync.WeatherSyncTransport;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.wearable.DataApi;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
+import com.google.android.gms.wearable.MessageApi;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeApi;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a single long-lived GoogleApiClient for every watch face engine of the process, instead of
+ * connecting and disconnecting on each visibility change.
+ * <p/>
+ * The latest DataMap of every settings path is cached together with a hash of its raw bytes, so a
+ * reconnection only dispatches items that actually changed and a newly attached engine gets the
+ * cached values without another round trip. Weather goes through the versioned
+ * {@link WeatherSyncProtocol}: the phone is only asked, with our last seen version, when the local
+ * copy was last confirmed more than {@link #WEATHER_STALE_AFTER_MS} ago. Applied weather is written to the
+ * {@link WatchWeatherStore}, which other readers on the watch reach through {@link WatchWeatherProvider}.
+ */
+public class WatchDataLayerConnection {
+
+    // Logging Identifier for the class
+    private static String LOG_TAG = WatchDataLayerConnection.class.getSimpleName();
+
+    private static final String PREFERENCES_NAME = "WatchDataLayerConnection";
+    // When the phone last confirmed our weather, also when it was already up to date
+    private static final String KEY_LAST_WEATHER_CHECK = PREFERENCES_NAME + ".KEY_LAST_WEATHER_CHECK";
+
+    // How old the weather on the watch may get before we ask the phone for fresh data
+    static final long WEATHER_STALE_AFTER_MS = TimeUnit.MINUTES.toMillis(30);
+
+    public interface Callback {
+
+        // Called on the main thread with the latest content of a settings path, only when it changed
+        void onDataMapChanged(String path, DataMap dataMap);
+
+        // Called whenever the weather shown on the watch changes
+        void onWeatherChanged(WeatherSnapshot snapshot);
+
+        void onConnectionChanged(boolean connected);
+    }
+
+    private static WatchDataLayerConnection sInstance;
+
+    private final GoogleApiClient mGoogleApiClient;
+    private final SharedPreferences mPreferences;
+    private final WeatherSyncClient mWeatherSyncClient;
+    private final WatchWeatherStore mWeatherStore;
+    private final List<Callback> mCallbacks = new ArrayList<>();
+    private final Map<String, DataMap> mLatestDataMaps = new HashMap<>();
+    private final Map<String, Integer> mLatestHashes = new HashMap<>();
+    // Node id of the phone, learned from the first lookup or reply
+    private String mPhoneNodeId;
+
+    public static synchronized WatchDataLayerConnection getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WatchDataLayerConnection(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private WatchDataLayerConnection(Context context) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mWeatherStore = WatchWeatherStore.getInstance(context);
+        mWeatherSyncClient = new WeatherSyncClient(mWeatherSyncTransport, mWeatherSyncListener);
+        // Start from the stored weather, so the first request after a restart can be answered with a
+        // delta. The file is read off the main thread, engines attached before get it when it is in
+        mWeatherStore.loadInBackground(new Runnable() {
+            @Override
+            public void run() {
+                WeatherSnapshot stored = mWeatherStore.get();
+                if (mWeatherSyncClient.restore(stored)) {
+                    for (Callback callback : new ArrayList<>(mCallbacks)) {
+                        callback.onWeatherChanged(stored);
+                    }
+                }
+            }
+        });
+        mGoogleApiClient = new GoogleApiClient.Builder(context)
+                .addApi(Wearable.API)
+                .addConnectionCallbacks(mConnectionCallbacks)
+                .addOnConnectionFailedListener(mOnConnectionFailedListener)
+                .build();
+    }
+
+    // Attach an engine. The first attached engine opens the connection, later ones get the cached data
+    public void acquire(Callback callback) {
+        mCallbacks.add(callback);
+        for (Map.Entry<String, DataMap> entry : mLatestDataMaps.entrySet()) {
+            callback.onDataMapChanged(entry.getKey(), entry.getValue());
+        }
+        WeatherSnapshot weather = mWeatherSyncClient.getSnapshot();
+        if (!weather.isEmpty()) {
+            callback.onWeatherChanged(weather);
+        }
+        if (mGoogleApiClient.isConnected()) {
+            callback.onConnectionChanged(true);
+        } else if (!mGoogleApiClient.isConnecting()) {
+            mGoogleApiClient.connect();
+            Log.d(LOG_TAG, "GoogleApiClent Connection Requested");
+        }
+    }
+
+    // Detach an engine. The connection is closed once no engine is left
+    public void release(Callback callback) {
+        mCallbacks.remove(callback);
+        if (mCallbacks.isEmpty() && (mGoogleApiClient.isConnected() || mGoogleApiClient.isConnecting())) {
+            if (mGoogleApiClient.isConnected()) {
+                Wearable.DataApi.removeListener(mGoogleApiClient, onDataChangedListener);
+                Wearable.MessageApi.removeListener(mGoogleApiClient, onMessageReceivedListener);
+            }
+            mGoogleApiClient.disconnect();
+            callback.onConnectionChanged(false);
+            Log.d(LOG_TAG, "GoogleApiClent Connection Disconnected");
+        }
+    }
+
+    public GoogleApiClient getClient() {
+        return mGoogleApiClient;
+    }
+
+    public boolean isConnected() {
+        return mGoogleApiClient.isConnected();
+    }
+
+    // Ask the phone for anything newer than our weather version, unless what we have is still fresh
+    public void requestWeatherIfStale() {
+        long lastCheck = mPreferences.getLong(KEY_LAST_WEATHER_CHECK, 0);
+        if (System.currentTimeMillis() - lastCheck < WEATHER_STALE_AFTER_MS) {
+            Log.d(LOG_TAG, "Weather is fresh, not asking the phone");
+            return;
+        }
+        if (mGoogleApiClient.isConnected()) {
+            mWeatherSyncClient.requestUpdate();
+        }
+    }
+
+    private final GoogleApiClient.ConnectionCallbacks mConnectionCallbacks = new GoogleApiClient.ConnectionCallbacks() {
+        @Override
+        public void onConnected(@Nullable Bundle bundle) {
+            Log.d(LOG_TAG, "connected GoogleAPI");
+            Wearable.DataApi.addListener(mGoogleApiClient, onDataChangedListener);
+            Wearable.MessageApi.addListener(mGoogleApiClient, onMessageReceivedListener);
+            // A single read of the current items, unchanged ones are filtered out by their hash
+            Wearable.DataApi.getDataItems(mGoogleApiClient).setResultCallback(onConnectedResultCallback);
+            for (Callback callback : new ArrayList<>(mCallbacks)) {
+                callback.onConnectionChanged(true);
+            }
+        }
+
+        @Override
+        public void onConnectionSuspended(int i) {
+            Log.e(LOG_TAG, "suspended GoogleAPI");
+            for (Callback callback : new ArrayList<>(mCallbacks)) {
+                callback.onConnectionChanged(false);
+            }
+        }
+    };
+
+    private final GoogleApiClient.OnConnectionFailedListener mOnConnectionFailedListener = new GoogleApiClient.OnConnectionFailedListener() {
+        @Override
+        public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
+            Log.d(LOG_TAG, "connectedFailed GoogleAPI");
+        }
+    };
+
+    private final ResultCallback<DataItemBuffer> onConnectedResultCallback = new ResultCallback<DataItemBuffer>() {
+        @Override
+        public void onResult(DataItemBuffer dataItems) {
+            for (DataItem item : dataItems) {
+                dispatchIfChanged(item);
+            }
+            dataItems.release();
+            requestWeatherIfStale();
+        }
+    };
+
+    private final DataApi.DataListener onDataChangedListener = new DataApi.DataListener() {
+        @Override
+        public void onDataChanged(DataEventBuffer dataEvents) {
+            for (DataEvent event : dataEvents) {
+                if (event.getType() == DataEvent.TYPE_CHANGED) {
+                    dispatchIfChanged(event.getDataItem());
+                }
+            }
+            dataEvents.release();
+        }
+    };
+
+    // Replies of the phone to our versioned weather requests
+    private final MessageApi.MessageListener onMessageReceivedListener = new MessageApi.MessageListener() {
+        @Override
+        public void onMessageReceived(MessageEvent messageEvent) {
+            if (WeatherSyncProtocol.RESPONSE_PATH.equals(messageEvent.getPath())) {
+                mPhoneNodeId = messageEvent.getSourceNodeId();
+                try {
+                    mWeatherSyncClient.onResponse(messageEvent.getData());
+                } catch (IllegalArgumentException e) {
+                    Log.d(LOG_TAG, "Ignoring weather sync response: " + e.getMessage());
+                }
+            }
+        }
+    };
+
+    // Sends weather requests to the phone over the MessageApi
+    private final WeatherSyncTransport mWeatherSyncTransport = new WeatherSyncTransport() {
+        @Override
+        public void send(final String path, final byte[] payload) {
+            if (mPhoneNodeId != null) {
+                Wearable.MessageApi.sendMessage(mGoogleApiClient, mPhoneNodeId, path, payload);
+                return;
+            }
+            Wearable.NodeApi.getConnectedNodes(mGoogleApiClient).setResultCallback(new ResultCallback<NodeApi.GetConnectedNodesResult>() {
+                @Override
+                public void onResult(NodeApi.GetConnectedNodesResult result) {
+                    for (Node node : result.getNodes()) {
+                        if (node.isNearby()) {
+                            mPhoneNodeId = node.getId();
+                            Wearable.MessageApi.sendMessage(mGoogleApiClient, mPhoneNodeId, path, payload);
+                            return;
+                        }
+                    }
+                    Log.d(LOG_TAG, "No phone connected, weather request dropped");
+                }
+            });
+        }
+    };
+
+    private final WeatherSyncClient.Listener mWeatherSyncListener = new WeatherSyncClient.Listener() {
+        @Override
+        public void onWeatherChanged(WeatherSnapshot snapshot) {
+            mWeatherStore.put(snapshot);
+            for (Callback callback : new ArrayList<>(mCallbacks)) {
+                callback.onWeatherChanged(snapshot);
+            }
+        }
+
+        @Override
+        public void onWeatherChecked() {
+            mPreferences.edit().putLong(KEY_LAST_WEATHER_CHECK, System.currentTimeMillis()).apply();
+        }
+    };
+
+    private void dispatchIfChanged(DataItem item) {
+        String path = item.getUri().getPath();
+        if (Constants.WEATHER_DATA_PATH.equals(path)) {
+            applyPushedWeather(DataMapItem.fromDataItem(item).getDataMap());
+            return;
+        }
+        if (!Constants.WATCH_FACE_SETTINGS_PATH.equals(path)) {
+            return;
+        }
+        int hash = Arrays.hashCode(item.getData());
+        Integer latestHash = mLatestHashes.get(path);
+        if (latestHash != null && latestHash == hash) {
+            return;
+        }
+        DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
+        mLatestHashes.put(path, hash);
+        mLatestDataMaps.put(path, dataMap);
+        for (Callback callback : new ArrayList<>(mCallbacks)) {
+            callback.onDataMapChanged(path, dataMap);
+        }
+    }
+
+    // Weather the phone pushed after a sync, carrying the same versions as the protocol replies
+    private void applyPushedWeather(DataMap dataMap) {
+        if (!dataMap.containsKey(Constants.WEATHER_KEY_VERSION)) {
+            // Left over request items written by older versions of the watch face
+            return;
+        }
+        mWeatherSyncClient.apply(new WeatherSnapshot(
+                dataMap.getLong(Constants.WEATHER_KEY_VERSION),
+                dataMap.getInt(Constants.WEATHER_KEY_ID),
+                dataMap.getFloat(Constants.WEATHER_KEY_TEMP_MAX),
+                dataMap.getFloat(Constants.WEATHER_KEY_TEMP_MIN),
+                dataMap.getBoolean(Constants.WEATHER_KEY_METRIC, true)));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.android.sunshine.app.wear;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.SystemClock;
+
+import com.example.android.sunshine.app.common.Constants;
+import com.google.android.gms.wearable.DataMap;
+
+import java.util.Arrays;
+
+/**
+ * Collects render performance figures for the watch face engine: a histogram of frame draw times,
+ * jitter of the interactive tick, invalidations per cause and time spent connected to the data layer.
+ * <p/>
+ * Everything is plain counters updated on the engine's main thread. The engine only creates one in
+ * debug builds. The figures can be drawn as an overlay or exported to the phone as a DataMap, each
+ * export covering the period since the previous {@link #reset()}.
+ */
+public class WatchFaceMetrics {
+
+    // Invalidation causes
+    public static final int CAUSE_TICK = 0;
+    public static final int CAUSE_WEATHER = 1;
+    public static final int CAUSE_CONFIG = 2;
+    public static final int CAUSE_AMBIENT = 3;
+    private static final String[] CAUSE_NAMES = {"tick", "weather", "config", "ambient"};
+
+    // Upper bounds (in microseconds) of the frame time histogram buckets, the last bucket is open ended
+    static final int[] FRAME_BUCKET_BOUNDS_US = {250, 500, 1000, 2000, 4000, 8000, 16000};
+
+    private final long[] mFrameBuckets = new long[FRAME_BUCKET_BOUNDS_US.length + 1];
+    private final long[] mInvalidations = new long[CAUSE_NAMES.length];
+    private long mFrameCount;
+    private long mFrameTotalUs;
+    private long mFrameMaxUs;
+
+    private long mTickCount;
+    private long mTickJitterTotalMs;
+    private long mTickJitterMaxMs;
+
+    private long mConnectedSinceMs = -1;
+    private long mConnectedTotalMs;
+
+    private long mStartedAtMs;
+    private Paint mOverlayPaint;
+
+    public WatchFaceMetrics() {
+        reset();
+    }
+
+    public void reset() {
+        Arrays.fill(mFrameBuckets, 0);
+        Arrays.fill(mInvalidations, 0);
+        mFrameCount = mFrameTotalUs = mFrameMaxUs = 0;
+        mTickCount = mTickJitterTotalMs = mTickJitterMaxMs = 0;
+        mConnectedTotalMs = 0;
+        mStartedAtMs = SystemClock.elapsedRealtime();
+        if (mConnectedSinceMs >= 0) {
+            mConnectedSinceMs = mStartedAtMs;
+        }
+    }
+
+    public void recordFrame(long durationNanos) {
+        long durationUs = durationNanos / 1000;
+        int bucket = 0;
+        while (bucket < FRAME_BUCKET_BOUNDS_US.length && durationUs > FRAME_BUCKET_BOUNDS_US[bucket]) {
+            bucket++;
+        }
+        mFrameBuckets[bucket]++;
+        mFrameCount++;
+        mFrameTotalUs += durationUs;
+        mFrameMaxUs = Math.max(mFrameMaxUs, durationUs);
+    }
+
+    // Record how late the interactive tick ran compared to when it was scheduled
+    public void recordTick(long scheduledUptimeMs, long actualUptimeMs) {
+        long jitter = Math.abs(actualUptimeMs - scheduledUptimeMs);
+        mTickCount++;
+        mTickJitterTotalMs += jitter;
+        mTickJitterMaxMs = Math.max(mTickJitterMaxMs, jitter);
+    }
+
+    public void recordInvalidate(int cause) {
+        mInvalidations[cause]++;
+    }
+
+    public void onConnected() {
+        if (mConnectedSinceMs < 0) {
+            mConnectedSinceMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    public void onDisconnected() {
+        if (mConnectedSinceMs >= 0) {
+            mConnectedTotalMs += SystemClock.elapsedRealtime() - mConnectedSinceMs;
+            mConnectedSinceMs = -1;
+        }
+    }
+
+    public long getConnectedMillis() {
+        long connected = mConnectedTotalMs;
+        if (mConnectedSinceMs >= 0) {
+            connected += SystemClock.elapsedRealtime() - mConnectedSinceMs;
+        }
+        return connected;
+    }
+
+    public float getInvalidationsPerMinute(int cause) {
+        float minutes = Math.max(1, SystemClock.elapsedRealtime() - mStartedAtMs) / 60000f;
+        return mInvalidations[cause] / minutes;
+    }
+
+    public long getAverageFrameMicros() {
+        return mFrameCount == 0 ? 0 : mFrameTotalUs / mFrameCount;
+    }
+
+    // Draw a small text overlay with the current figures, only meant for debug builds
+    public void drawOverlay(Canvas canvas, Rect bounds) {
+        if (mOverlayPaint == null) {
+            mOverlayPaint = new Paint();
+            mOverlayPaint.setColor(Color.YELLOW);
+            mOverlayPaint.setTextSize(bounds.height() / 24f);
+            mOverlayPaint.setAntiAlias(true);
+        }
+        float lineHeight = mOverlayPaint.getTextSize() * 1.2f;
+        float x = bounds.width() / 5f;
+        float y = bounds.height() / 6f;
+        canvas.drawText("frame avg " + getAverageFrameMicros() + "us max " + mFrameMaxUs + "us", x, y, mOverlayPaint);
+        y += lineHeight;
+        long jitterAvg = mTickCount == 0 ? 0 : mTickJitterTotalMs / mTickCount;
+        canvas.drawText("tick jitter avg " + jitterAvg + "ms max " + mTickJitterMaxMs + "ms", x, y, mOverlayPaint);
+        y += lineHeight;
+        StringBuilder invalidations = new StringBuilder("inv/min");
+        for (int cause = 0; cause < CAUSE_NAMES.length; cause++) {
+            invalidations.append(' ').append(CAUSE_NAMES[cause].charAt(0))
+                    .append(Math.round(getInvalidationsPerMinute(cause)));
+        }
+        canvas.drawText(invalidations.toString(), x, y, mOverlayPaint);
+        y += lineHeight;
+        canvas.drawText("connected " + getConnectedMillis() / 1000 + "s", x, y, mOverlayPaint);
+    }
+
+    // Snapshot of all figures, sent to the phone through the data layer
+    public DataMap toDataMap() {
+        DataMap dataMap = new DataMap();
+        dataMap.putLong(Constants.METRICS_KEY_TIMESTAMP, System.currentTimeMillis());
+        dataMap.putLong(Constants.METRICS_KEY_PERIOD_MS, SystemClock.elapsedRealtime() - mStartedAtMs);
+        dataMap.putLongArray(Constants.METRICS_KEY_FRAME_HISTOGRAM, mFrameBuckets.clone());
+        dataMap.putLong(Constants.METRICS_KEY_FRAME_COUNT, mFrameCount);
+        dataMap.putLong(Constants.METRICS_KEY_FRAME_AVG_US, getAverageFrameMicros());
+        dataMap.putLong(Constants.METRICS_KEY_FRAME_MAX_US, mFrameMaxUs);
+        dataMap.putLong(Constants.METRICS_KEY_TICK_JITTER_MAX_MS, mTickJitterMaxMs);
+        dataMap.putLong(Constants.METRICS_KEY_TICK_JITTER_AVG_MS, mTickCount == 0 ? 0 : mTickJitterTotalMs / mTickCount);
+        dataMap.putLongArray(Constants.METRICS_KEY_INVALIDATIONS, mInvalidations.clone());
+        dataMap.putLong(Constants.METRICS_KEY_CONNECTED_MS, getConnectedMillis());
+        return dataMap;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.sunshine.app.wear;
+
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+/**
+ * Contract of {@link WatchWeatherProvider}, the weather other watch faces and tiles on this watch
+ * read instead of opening their own data layer connection.
+ * <p/>
+ * Readers must hold {@link #PERMISSION_READ}, a signature permission, so only apps signed with the
+ * same key as Sunshine get the weather.
+ * <p/>
+ * The provider returns a single row for today. Register a ContentObserver on {@link #CONTENT_URI}
+ * to hear about changes.
+ */
+public class WatchWeatherContract {
+
+    public static final String CONTENT_AUTHORITY = "com.example.android.sunshine.app.wear.weather";
+
+    public static final String PERMISSION_READ = "com.example.android.sunshine.app.permission.READ_WATCH_WEATHER";
+
+    public static final String PATH_WEATHER = "weather";
+
+    public static final Uri CONTENT_URI = new Uri.Builder()
+            .scheme("content")
+            .authority(CONTENT_AUTHORITY)
+            .appendPath(PATH_WEATHER)
+            .build();
+
+    public static final String CONTENT_ITEM_TYPE =
+            "vnd.android.cursor.item/" + CONTENT_AUTHORITY + "/" + PATH_WEATHER;
+
+    public static final class WeatherEntry implements BaseColumns {
+
+        // Version the phone gave this weather, grows with every change
+        public static final String COLUMN_VERSION = "version";
+
+        // When the watch received it, in milliseconds since the epoch
+        public static final String COLUMN_UPDATED = "updated";
+
+        // Weather id as returned by the OpenWeatherMap API
+        public static final String COLUMN_WEATHER_ID = "weather_id";
+
+        // Raw temperatures in Celsius, format them for COLUMN_METRIC
+        public static final String COLUMN_MAX_TEMP = "max";
+        public static final String COLUMN_MIN_TEMP = "min";
+
+        // 1 when the user picked metric units on the phone
+        public static final String COLUMN_METRIC = "metric";
+
+        // The whole row in the compact form of WeatherSyncProtocol#encodeSnapshot
+        public static final String COLUMN_SNAPSHOT = "snapshot";
+    }
+}
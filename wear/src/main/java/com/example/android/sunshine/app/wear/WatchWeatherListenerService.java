@@ -3,64 +3,57 @@ package com.example.android.sunshine.app.wear;
 import android.util.Log;
 
 import com.example.android.sunshine.app.common.Constants;
-import com.google.android.gms.common.api.GoogleApiClient;
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.MessageEvent;
-import com.google.android.gms.wearable.PutDataMapRequest;
-import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 
+/**
+ * Keeps the {@link WatchWeatherStore} current while no watch face is running, so readers of
+ * {@link WatchWeatherProvider} do not need a data layer connection of their own.
+ */
 public class WatchWeatherListenerService extends WearableListenerService {
 
     // Logging Identifier for the class
     private static String LOG_TAG = WatchWeatherListenerService.class.getSimpleName();
 
-    private GoogleApiClient mGoogleApiClient;
-    // Weather data
-    private static String mWeatherTempMax;
-    private static String mWeatherTempMin;
-    private static int mWeatherId;
-
-    private static boolean alreadyInitialize;
-    private static String path;
-
     @Override
     public void onMessageReceived(MessageEvent messageEvent) {
         Log.d(LOG_TAG, "onMessageReceived: " + messageEvent);
-
-        if (mGoogleApiClient == null) {
-            mGoogleApiClient = new GoogleApiClient.Builder(this)
-                    .addApi(Wearable.API)
-                    .build();
+        // Reply of the phone to the legacy weather request
+        if (Constants.WEATHER_DATA_PATH.equals(messageEvent.getPath())) {
+            store(DataMap.fromByteArray(messageEvent.getData()));
         }
+    }
 
-        if (!mGoogleApiClient.isConnected())
-            mGoogleApiClient.connect();
-
-        DataMap dataMap = DataMap.fromByteArray(messageEvent.getData());
-
-        path = messageEvent.getPath();
-        PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(path);
-        DataMap config = putDataMapRequest.getDataMap();
-
-        if (path.equals(Constants.WEATHER_DATA_PATH)) {
-
-            if (dataMap.containsKey(Constants.WEATHER_KEY_ID)) {
-                mWeatherId = dataMap.getInt(Constants.WEATHER_KEY_ID);
-            }
-
-            if (dataMap.containsKey(Constants.WEATHER_KEY_TEMP_MAX)) {
-                mWeatherTempMin = dataMap.getString(Constants.WEATHER_KEY_TEMP_MAX);
-            }
-
-            if (dataMap.containsKey(Constants.WEATHER_KEY_TEMP_MIN)) {
-                mWeatherTempMax = dataMap.getString(Constants.WEATHER_KEY_TEMP_MIN);
+    @Override
+    public void onDataChanged(DataEventBuffer dataEvents) {
+        // Weather the phone pushed after a sync
+        for (DataEvent event : dataEvents) {
+            if (event.getType() == DataEvent.TYPE_CHANGED
+                    && Constants.WEATHER_DATA_PATH.equals(event.getDataItem().getUri().getPath())) {
+                store(DataMapItem.fromDataItem(event.getDataItem()).getDataMap());
             }
+        }
+        dataEvents.release();
+    }
 
-            config.putLong(Constants.WEATHER_KEY_UPDATE_TIME, System.currentTimeMillis());
-            config.putInt(Constants.WEATHER_KEY_ID, mWeatherId);
-            config.putString(Constants.WEATHER_KEY_TEMP_MAX, mWeatherTempMax);
-            config.putString(Constants.WEATHER_KEY_TEMP_MIN, mWeatherTempMin);
+    private void store(DataMap dataMap) {
+        if (!dataMap.containsKey(Constants.WEATHER_KEY_VERSION)) {
+            // Left over request items written by older versions of the watch face
+            return;
+        }
+        WeatherSnapshot snapshot = new WeatherSnapshot(
+                dataMap.getLong(Constants.WEATHER_KEY_VERSION),
+                dataMap.getInt(Constants.WEATHER_KEY_ID),
+                dataMap.getFloat(Constants.WEATHER_KEY_TEMP_MAX),
+                dataMap.getFloat(Constants.WEATHER_KEY_TEMP_MIN),
+                dataMap.getBoolean(Constants.WEATHER_KEY_METRIC, true));
+        if (WatchWeatherStore.getInstance(this).put(snapshot)) {
+            Log.d(LOG_TAG, "Stored " + snapshot);
         }
     }
-}
\ No newline at end of file
+}
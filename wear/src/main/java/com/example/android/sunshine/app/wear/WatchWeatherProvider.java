@@ -0,0 +1,124 @@
+package com.example.android.sunshine.app.wear;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
+
+/**
+ * Read only view of {@link WatchWeatherStore}. Rows are built from the in-memory snapshot, so a
+ * query never touches the data layer or the disk.
+ */
+public class WatchWeatherProvider extends ContentProvider {
+
+    static final int WEATHER = 100;
+
+    private static final UriMatcher sUriMatcher = buildUriMatcher();
+
+    private static final String[] ALL_COLUMNS = new String[]{
+            WatchWeatherContract.WeatherEntry._ID,
+            WatchWeatherContract.WeatherEntry.COLUMN_VERSION,
+            WatchWeatherContract.WeatherEntry.COLUMN_UPDATED,
+            WatchWeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WatchWeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WatchWeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WatchWeatherContract.WeatherEntry.COLUMN_METRIC,
+            WatchWeatherContract.WeatherEntry.COLUMN_SNAPSHOT
+    };
+
+    private WatchWeatherStore mStore;
+
+    static UriMatcher buildUriMatcher() {
+        final UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
+        matcher.addURI(WatchWeatherContract.CONTENT_AUTHORITY, WatchWeatherContract.PATH_WEATHER, WEATHER);
+        return matcher;
+    }
+
+    @Override
+    public boolean onCreate() {
+        mStore = WatchWeatherStore.getInstance(getContext());
+        return true;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        if (sUriMatcher.match(uri) == WEATHER) {
+            return WatchWeatherContract.CONTENT_ITEM_TYPE;
+        }
+        throw new UnsupportedOperationException("Unknown uri: " + uri);
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        if (sUriMatcher.match(uri) != WEATHER) {
+            throw new UnsupportedOperationException("Unknown uri: " + uri);
+        }
+        String[] columns = projection != null ? projection : ALL_COLUMNS;
+        MatrixCursor cursor = new MatrixCursor(columns, 1);
+        cursor.setNotificationUri(getContext().getContentResolver(), WatchWeatherContract.CONTENT_URI);
+
+        WeatherSnapshot snapshot;
+        byte[] encoded;
+        long updated;
+        synchronized (mStore) {
+            snapshot = mStore.get();
+            encoded = mStore.getEncoded();
+            updated = mStore.getUpdated();
+        }
+        if (snapshot.isEmpty()) {
+            return cursor;
+        }
+
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = columnValue(columns[i], snapshot, encoded, updated);
+        }
+        cursor.addRow(row);
+        return cursor;
+    }
+
+    private static Object columnValue(String column, WeatherSnapshot snapshot, byte[] encoded, long updated) {
+        switch (column) {
+            case WatchWeatherContract.WeatherEntry._ID:
+                return 1;
+            case WatchWeatherContract.WeatherEntry.COLUMN_VERSION:
+                return snapshot.version;
+            case WatchWeatherContract.WeatherEntry.COLUMN_UPDATED:
+                return updated;
+            case WatchWeatherContract.WeatherEntry.COLUMN_WEATHER_ID:
+                return snapshot.weatherId;
+            case WatchWeatherContract.WeatherEntry.COLUMN_MAX_TEMP:
+                return snapshot.high;
+            case WatchWeatherContract.WeatherEntry.COLUMN_MIN_TEMP:
+                return snapshot.low;
+            case WatchWeatherContract.WeatherEntry.COLUMN_METRIC:
+                return snapshot.metric ? 1 : 0;
+            case WatchWeatherContract.WeatherEntry.COLUMN_SNAPSHOT:
+                return encoded;
+            default:
+                throw new IllegalArgumentException("Unknown column: " + column);
+        }
+    }
+
+    // Weather only comes from the phone, through WatchDataLayerConnection and WatchWeatherListenerService
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Read only uri: " + uri);
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only uri: " + uri);
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only uri: " + uri);
+    }
+}
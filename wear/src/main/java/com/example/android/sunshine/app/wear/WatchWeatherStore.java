@@ -0,0 +1,183 @@
+package com.example.android.sunshine.app.wear;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.android.sunshine.app.common.sync.WeatherSnapshot;
+import com.example.android.sunshine.app.common.sync.WeatherSyncProtocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latest weather on the watch, kept in a small file so it survives process restarts and served
+ * to other readers through {@link WatchWeatherProvider}. Changes notify {@link WatchWeatherContract#CONTENT_URI}.
+ * <p/>
+ * The file is read on first use, by the provider on a binder thread, or on the worker thread through
+ * {@link #loadInBackground(Runnable)}. It is written on the same worker thread.
+ */
+public class WatchWeatherStore {
+
+    // Logging Identifier for the class
+    private static String LOG_TAG = WatchWeatherStore.class.getSimpleName();
+
+    private static final String FILE_NAME = "watch_weather.bin";
+    private static final long WRITER_KEEP_ALIVE_SECONDS = 30;
+
+    private static WatchWeatherStore sInstance;
+
+    private final Context mContext;
+    private final AtomicFile mFile;
+    // A single writer, so writes of the file never overlap
+    private final ThreadPoolExecutor mWriter = new ThreadPoolExecutor(1, 1,
+            WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    // Set while a write is queued, it picks up every snapshot put before it runs
+    private boolean mSavePending;
+    // Set once the file was read
+    private boolean mLoaded;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private WeatherSnapshot mSnapshot = WeatherSnapshot.EMPTY;
+    private byte[] mEncoded;
+    private long mUpdated;
+
+    public static synchronized WatchWeatherStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WatchWeatherStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private WatchWeatherStore(Context context) {
+        mContext = context;
+        mFile = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        mWriter.allowCoreThreadTimeOut(true);
+    }
+
+    // Reads the file on the calling thread the first time, keep it off the main thread
+    public synchronized WeatherSnapshot get() {
+        ensureLoaded();
+        return mSnapshot;
+    }
+
+    // Compact form of the current snapshot, null while there is none
+    public synchronized byte[] getEncoded() {
+        ensureLoaded();
+        return mEncoded;
+    }
+
+    public synchronized long getUpdated() {
+        ensureLoaded();
+        return mUpdated;
+    }
+
+    // Read the file on the worker thread, then run onLoaded on the main thread
+    public void loadInBackground(final Runnable onLoaded) {
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (WatchWeatherStore.this) {
+                    ensureLoaded();
+                }
+                mMainHandler.post(onLoaded);
+            }
+        });
+    }
+
+    private void ensureLoaded() {
+        if (!mLoaded) {
+            mLoaded = true;
+            load();
+        }
+    }
+
+    /**
+     * Keep a new snapshot and tell readers about it.
+     *
+     * @return false if it is the one already stored, or older than it
+     */
+    public boolean put(WeatherSnapshot snapshot) {
+        synchronized (this) {
+            // Compared with the stored snapshot. Puts follow a reply of the phone, which comes
+            // after the load the connection started
+            ensureLoaded();
+            // Versions only grow, so an older snapshot arrived late and is dropped
+            if (snapshot.isEmpty() || snapshot.version < mSnapshot.version
+                    || (snapshot.version == mSnapshot.version && snapshot.hasSameContentAs(mSnapshot))) {
+                return false;
+            }
+            mSnapshot = snapshot;
+            mEncoded = WeatherSyncProtocol.encodeSnapshot(snapshot);
+            mUpdated = System.currentTimeMillis();
+            if (!mSavePending) {
+                mSavePending = true;
+                mWriter.execute(mSave);
+            }
+        }
+        mContext.getContentResolver().notifyChange(WatchWeatherContract.CONTENT_URI, null);
+        return true;
+    }
+
+    private void load() {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(mFile.openRead());
+            long updated = in.readLong();
+            byte[] encoded = new byte[in.readUnsignedByte()];
+            in.readFully(encoded);
+            mSnapshot = WeatherSyncProtocol.decodeSnapshot(encoded);
+            mEncoded = encoded;
+            mUpdated = updated;
+        } catch (IOException | IllegalArgumentException e) {
+            // Nothing stored yet, or written by an older wire version
+            Log.d(LOG_TAG, "No stored weather: " + e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private final Runnable mSave = new Runnable() {
+        @Override
+        public void run() {
+            byte[] encoded;
+            long updated;
+            synchronized (WatchWeatherStore.this) {
+                mSavePending = false;
+                encoded = mEncoded;
+                updated = mUpdated;
+            }
+            save(encoded, updated);
+        }
+    };
+
+    private void save(byte[] encoded, long updated) {
+        FileOutputStream stream = null;
+        try {
+            stream = mFile.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeLong(updated);
+            out.writeByte(encoded.length);
+            out.write(encoded);
+            out.flush();
+            mFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not store weather", e);
+            if (stream != null) {
+                mFile.failWrite(stream);
+            }
+        }
+    }
+}